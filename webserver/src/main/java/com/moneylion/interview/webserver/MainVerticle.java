@@ -2,17 +2,28 @@ package com.moneylion.interview.webserver;
 
 import io.vertx.core.Vertx;
 import org.apache.log4j.PropertyConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class MainVerticle {
 
   public static final String configProperties = "src/main/resources/logger.properties";
 
+  private static final Logger logger = LoggerFactory.getLogger(MainVerticle.class);
+
   public static void main(String[] args) {
     // configure logger
     PropertyConfigurator.configure(MainVerticle.configProperties);
 
-    // create http server
+    // create http server, exit if it cannot start
     Vertx vertx = Vertx.vertx();
-    vertx.deployVerticle(new ServerInitializerVerticle());
+    vertx.deployVerticle(new ServerInitializerVerticle(), result -> {
+
+      if (result.failed()) {
+
+        logger.error("Failed to start server: ", result.cause());
+        vertx.close(closed -> System.exit(1));
+      }
+    });
   }
 }
@@ -1,11 +1,27 @@
 package com.moneylion.interview.webserver;
 
+import com.moneylion.interview.webserver.utils.AuditLog;
+import com.moneylion.interview.webserver.utils.ConfigLoader;
 import com.moneylion.interview.webserver.utils.DatabaseUtils;
+import com.moneylion.interview.webserver.utils.FeatureStats;
+import com.moneylion.interview.webserver.utils.MediaTypeCodec;
+import com.moneylion.interview.webserver.utils.PermissionChange;
+import com.moneylion.interview.webserver.utils.RateLimiter;
+import com.moneylion.interview.webserver.utils.RolloutEvaluator;
 import com.moneylion.interview.webserver.utils.Validator;
+import io.vertx.config.ConfigRetriever;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.mongo.BulkOperation;
 import io.vertx.ext.mongo.MongoClientUpdateResult;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
@@ -13,47 +29,434 @@ import io.vertx.ext.web.handler.BodyHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 public class ServerInitializerVerticle extends AbstractVerticle {
 
-  private DatabaseUtils dbUtils;
+  private final DatabaseUtils dbUtils;
+  private final RolloutEvaluator rolloutEvaluator = new RolloutEvaluator();
+  private FeatureStats featureStats;
+  private boolean flushesStats;
+  private AuditLog auditLog;
+  private boolean flushesAudit;
+  private boolean auditFlushing;
+  private RateLimiter rateLimiter;
+  private final List<String> ownedState = new ArrayList<>();
+  private volatile boolean ready;
+  private ConfigRetriever configRetriever;
+  private volatile JsonObject appConfig;
+
+  // periodic timers and their current periods
+  private long rulesTimer = -1;
+  private long rulesRefreshMs;
+  private long statsTimer = -1;
+  private long statsFlushMs;
+  private long auditTimer = -1;
+  private long auditFlushMs;
   private static final Logger logger = LoggerFactory.getLogger(ServerInitializerVerticle.class);
   private static final String PERMISSIONS = "permissions";
+  private static final String RULES = "rules";
+  private static final String FEATURE_STATS = "feature_stats";
+  private static final String AUDIT = "audit";
+  private static final String AUDIT_LOG = "audit_log";
+  private static final String ACTOR_HEADER = "X-Actor";
+  private static final String RATE_LIMITER = "rate_limiter";
+  private static final String API_KEY_HEADER = "X-API-Key";
+  private static final String SHARED_STATE = "webserver";
+  private static final String REQUEST_BODY = "requestBody";
+  private static final int DEFAULT_PORT = 3000;
+  private static final long DEFAULT_RULES_REFRESH_MS = 30000;
+  private static final long DEFAULT_STATS_FLUSH_MS = 10000;
+  private static final long DEFAULT_STATS_WINDOW_MS = 60000;
+  private static final int DEFAULT_STATS_MAX_FEATURES = 10000;
+  private static final int DEFAULT_WARM_UP_ITERATIONS = 20000;
+  private static final int DEFAULT_AUDIT_CAPACITY = 10000;
+  private static final int DEFAULT_AUDIT_BATCH_SIZE = 500;
+  private static final long DEFAULT_AUDIT_FLUSH_MS = 1000;
+  private static final String DEFAULT_AUDIT_DIRECTORY = "logs/audit";
+  private static final int DEFAULT_RATE_LIMIT_STRIPES = 64;
+  private static final int DEFAULT_RATE_LIMIT_MAX_KEYS = 100000;
+
+  public ServerInitializerVerticle() {
+
+    this(new DatabaseUtils());
+  }
 
   /**
-   * Initialize the server and start it
+   * @param dbUtils database operations used by the handlers, e.g. an in-memory implementation for load tests
+   */
+  public ServerInitializerVerticle(DatabaseUtils dbUtils) {
+
+    this.dbUtils = dbUtils;
+  }
+
+  /**
+   * Initialize the server and start it.
+   * The http server is started first so that liveness can be checked during startup. The node is ready once
+   * the database is initialized, rollout rules are loaded and connection pool and handlers are warmed up.
    */
   @Override
   public void start(Promise<Void> startPromise) throws Exception {
 
-    // connect to mongodb
-    dbUtils = new DatabaseUtils();
-    dbUtils.initializeDatabase(vertx, "src/main/resources/mongodb_cloud_config.json", PERMISSIONS);
+    configRetriever = ConfigLoader.create(vertx, config());
+
+    configRetriever.getConfig()
+      .compose(loadedConfig -> {
+
+        appConfig = loadedConfig;
+
+        // evaluation counters are shared by all instances of this verticle, the first instance flushes them
+        FeatureStats stats = new FeatureStats(appConfig.getInteger("statsMaxFeatures", DEFAULT_STATS_MAX_FEATURES));
+        featureStats = share(FEATURE_STATS, stats);
+        flushesStats = featureStats == stats;
 
-    // Uncomment this to connect to local mongodb and edit config file
-//    dbUtils.initializeDatabase(vertx, "src/main/resources/mongodb_local_config.json", PERMISSIONS);
+        // audit events of all instances are queued together and written by the first instance
+        JsonObject auditConfig = appConfig.getJsonObject("audit", new JsonObject());
+        AuditLog log = new AuditLog(auditConfig.getInteger("capacity", DEFAULT_AUDIT_CAPACITY),
+          AuditLog.OverflowPolicy.valueOf(auditConfig.getString("overflowPolicy", AuditLog.OverflowPolicy.BACKPRESSURE.name())));
+        auditLog = share(AUDIT_LOG, log);
+        flushesAudit = auditLog == log;
 
-    // create route for server
-    Router router = initializeRoute();
+        // request rates are limited across all instances, so that a client gets the same limit on every event loop
+        JsonObject rateLimitConfig = appConfig.getJsonObject("rateLimit", new JsonObject());
+        rateLimiter = share(RATE_LIMITER, new RateLimiter(rateLimitConfig.getInteger("stripes", DEFAULT_RATE_LIMIT_STRIPES),
+          rateLimitConfig.getInteger("maxKeys", DEFAULT_RATE_LIMIT_MAX_KEYS)));
+        rateLimiter.configure(rateLimitConfig.getJsonObject("routes", new JsonObject()));
 
-    // start server
-    vertx.createHttpServer().requestHandler(router)
-      .listen(3000, http -> {
+        // create route for server
+        Router router = initializeRoute();
 
-        if (http.succeeded()) {
+        // start server
+        JsonObject httpConfig = appConfig.getJsonObject("http", new JsonObject());
+        HttpServerOptions httpOptions = new HttpServerOptions(httpConfig.getJsonObject("options", new JsonObject()))
+          .setPort(httpConfig.getInteger("port", DEFAULT_PORT));
+        return vertx.createHttpServer(httpOptions).requestHandler(router).listen();
+      })
+      .compose(http -> {
 
+        logger.info("HTTP server started on port " + http.actualPort());
+
+        // connect to mongodb
+        return Future.fromCompletionStage(
+          dbUtils.initializeDatabase(vertx, ConfigLoader.mongoConfig(appConfig), PERMISSIONS, RULES, FEATURE_STATS, AUDIT), context);
+      })
+      .compose(v -> Future.fromCompletionStage(loadRules(), context))
+      .compose(v -> Future.fromCompletionStage(dbUtils.warmUpPool(PERMISSIONS), context))
+      .compose(v -> warmUpHandlers(appConfig.getInteger("warmUpIterations", DEFAULT_WARM_UP_ITERATIONS)))
+      .onComplete(startup -> {
+
+        if (startup.succeeded()) {
+
+          // keep rollout rules up to date and write evaluation counts to database
+          scheduleTimers();
+
+          // apply configuration changes without restart
+          configRetriever.listen(change -> applyConfig(change.getNewConfiguration()));
+
+          ready = true;
           startPromise.complete();
-          logger.info("HTTP server started on port 3000");
+          logger.info("Server is ready");
 
         } else {
 
-          startPromise.fail(http.cause());
+          logger.error("Server failed to start: ", startup.cause());
+          configRetriever.close();
+          startPromise.fail(startup.cause());
 
         }
       });
   }
 
+  /**
+   * Stop config scans and write queued audit events
+   */
+  @Override
+  public void stop(Promise<Void> stopPromise) {
+
+    configRetriever.close();
+
+    // a redeployment creates its own shared state
+    for (String name : ownedState) {
+      vertx.sharedData().getLocalMap(SHARED_STATE + "." + name).remove(deploymentID());
+    }
+
+    List<JsonObject> batch = flushesAudit ? auditLog.take(Integer.MAX_VALUE) : null;
+    if (batch == null || batch.isEmpty()) {
+      stopPromise.complete();
+      return;
+    }
+
+    writeAudit(batch).onComplete(result -> {
+      if (result.failed()) {
+        logger.error("Failed to write " + batch.size() + " audit events on shutdown: ", result.cause());
+      }
+      stopPromise.complete();
+    });
+  }
+
+  /**
+   * Share state with the other instances of this deployment. The first instance owns the state and removes it on stop.
+   *
+   * @param name    name of the state
+   * @param created state created by this instance
+   * @param <T>     type of the state
+   * @return state of the first instance that shared it, created if this instance is the first
+   */
+  private <T extends Shareable> T share(String name, T created) {
+
+    LocalMap<String, T> state = vertx.sharedData().getLocalMap(SHARED_STATE + "." + name);
+    T shared = state.putIfAbsent(deploymentID(), created);
+    if (shared != null) {
+      return shared;
+    }
+
+    ownedState.add(name);
+    return created;
+  }
+
+  /**
+   * Apply changed configuration. Http settings need a restart, everything else applies to the next request or timer.
+   *
+   * @param newConfig new configuration
+   */
+  private void applyConfig(JsonObject newConfig) {
+
+    JsonObject oldConfig = appConfig;
+    appConfig = newConfig;
+    logger.info("Configuration changed");
+
+    if (!newConfig.getJsonObject("http", new JsonObject()).equals(oldConfig.getJsonObject("http", new JsonObject()))) {
+      logger.warn("Http server settings changed, restart the server to apply them");
+    }
+
+    try {
+      dbUtils.reconfigure(ConfigLoader.mongoConfig(newConfig));
+    } catch (RuntimeException e) {
+      logger.error("Failed to apply mongodb configuration: ", e);
+    }
+
+    // stripes and size of the bucket map need a restart
+    try {
+      rateLimiter.configure(newConfig.getJsonObject("rateLimit", new JsonObject()).getJsonObject("routes", new JsonObject()));
+    } catch (RuntimeException e) {
+      logger.error("Failed to apply rate limit configuration: ", e);
+    }
+
+    scheduleTimers();
+  }
+
+  /**
+   * Schedule periodic rule reloads and stats flushes, rescheduling them if their period changed
+   */
+  private void scheduleTimers() {
+
+    long rulesRefreshMs = appConfig.getLong("rulesRefreshMS", DEFAULT_RULES_REFRESH_MS);
+    if (rulesRefreshMs != this.rulesRefreshMs) {
+      vertx.cancelTimer(rulesTimer);
+      rulesTimer = vertx.setPeriodic(rulesRefreshMs, id -> loadRules());
+      this.rulesRefreshMs = rulesRefreshMs;
+    }
+
+    long statsFlushMs = appConfig.getLong("statsFlushMS", DEFAULT_STATS_FLUSH_MS);
+    if (flushesStats && statsFlushMs != this.statsFlushMs) {
+      vertx.cancelTimer(statsTimer);
+      statsTimer = vertx.setPeriodic(statsFlushMs, id -> flushStats());
+      this.statsFlushMs = statsFlushMs;
+    }
+
+    long auditFlushMs = appConfig.getJsonObject("audit", new JsonObject()).getLong("flushMS", DEFAULT_AUDIT_FLUSH_MS);
+    if (flushesAudit && auditFlushMs != this.auditFlushMs) {
+      vertx.cancelTimer(auditTimer);
+      auditTimer = vertx.setPeriodic(auditFlushMs, id -> flushAudit());
+      this.auditFlushMs = auditFlushMs;
+    }
+  }
+
+  /**
+   * Load rollout rules from database into the rollout evaluator
+   *
+   * @return completes when rules are loaded
+   */
+  private CompletableFuture<Void> loadRules() {
+
+    return dbUtils.findDocuments(RULES, new JsonObject()).handle((rules, exception) -> {
+
+      if (exception != null) {
+
+        logger.error("Failed to load rollout rules from database: ", exception);
+        throw new CompletionException(exception);
+
+      }
+
+      try {
+
+        rolloutEvaluator.load(rules);
+
+      } catch (RuntimeException e) {
+
+        logger.error("Failed to compile rollout rules: ", e);
+        throw new CompletionException(e);
+      }
+
+      logger.debug("Loaded rollout rules for " + rolloutEvaluator.size() + " features");
+      return null;
+    });
+  }
+
+  /**
+   * Run the hot request handling code paths with synthetic requests so that they are compiled by the JIT
+   * before real traffic arrives. Runs on a worker thread to keep the event loop free for health checks.
+   *
+   * @param iterations number of synthetic requests
+   * @return completes when warm-up is done
+   */
+  private Future<Void> warmUpHandlers(int iterations) {
+
+    return vertx.executeBlocking(promise -> {
+
+      long start = System.currentTimeMillis();
+      Buffer jsonBody = new JsonObject()
+        .put("featureName", "warmup")
+        .put("email", "warmup@example.com")
+        .put("enable", true)
+        .toBuffer();
+
+      try {
+
+        Buffer cborBody = MediaTypeCodec.encode(MediaTypeCodec.CBOR, jsonBody.toJsonObject());
+        RateLimiter warmUpLimiter = new RateLimiter(1, 1);
+        RateLimiter.Limit warmUpLimit = new RateLimiter.Limit(1, 1, RateLimiter.Limit.Key.IP);
+        for (int i = 0; i < iterations; i++) {
+
+          String email = "warmup" + i + "@example.com";
+          Validator.validateEmail(email);
+          Validator.validateAlphanumeric("warmup");
+          rolloutEvaluator.evaluateOverride("warmup", email);
+          rolloutEvaluator.evaluateRollout("warmup", email);
+          warmUpLimiter.tryAcquire("GET /feature", warmUpLimit, email, System.nanoTime());
+
+          Validator.parsePermissionChange(MediaTypeCodec.factory(MediaTypeCodec.JSON), jsonBody);
+          Validator.parsePermissionChange(MediaTypeCodec.factory(MediaTypeCodec.CBOR), cborBody);
+
+          JsonObject response = new JsonObject().put("canAccess", true);
+          MediaTypeCodec.encode(MediaTypeCodec.JSON, response);
+          MediaTypeCodec.encode(MediaTypeCodec.CBOR, response);
+        }
+
+      } catch (IOException e) {
+
+        promise.fail(e);
+        return;
+      }
+
+      logger.info("Warmed up handlers with " + iterations + " requests in " + (System.currentTimeMillis() - start) + "ms");
+      promise.complete();
+    });
+  }
+
+  /**
+   * Write evaluation counts since the last flush to database, one document per feature and time window
+   */
+  private void flushStats() {
+
+    List<FeatureStats.Delta> deltas = featureStats.takeDeltas();
+    if (deltas.isEmpty()) {
+      return;
+    }
+
+    // start of the time window the counts are added to
+    long windowMs = appConfig.getLong("statsWindowMS", DEFAULT_STATS_WINDOW_MS);
+    long window = System.currentTimeMillis() / windowMs * windowMs;
+
+    List<BulkOperation> operations = deltas.stream()
+      .map(delta -> BulkOperation.createUpdate(
+        new JsonObject().put("featureName", delta.getFeatureName()).put("window", window),
+        delta.toIncrement(), true, false))
+      .collect(Collectors.toList());
+
+    dbUtils.bulkWrite(FEATURE_STATS, operations).whenComplete((result, exception) -> {
+
+      if (exception != null) {
+
+        // counts are written with the next flush
+        logger.error("Failed to write feature stats to database: ", exception);
+        featureStats.restore(deltas);
+
+      }
+    });
+  }
+
+  /**
+   * Write the oldest queued audit events as one batch. Continues with the next batch while full batches are queued.
+   * Events of a failed batch are queued again and written with the next flush.
+   */
+  private void flushAudit() {
+
+    // one batch at a time keeps events in order
+    if (auditFlushing) {
+      return;
+    }
+
+    int batchSize = appConfig.getJsonObject("audit", new JsonObject()).getInteger("batchSize", DEFAULT_AUDIT_BATCH_SIZE);
+    List<JsonObject> batch = auditLog.take(batchSize);
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    auditFlushing = true;
+    writeAudit(batch).onComplete(result -> {
+
+      auditFlushing = false;
+      if (result.succeeded()) {
+
+        auditLog.written(batch);
+        logger.debug("Wrote " + batch.size() + " audit events");
+        if (auditLog.depth() >= batchSize) {
+          flushAudit();
+        }
+
+      } else {
+
+        logger.error("Failed to write " + batch.size() + " audit events: ", result.cause());
+        auditLog.restore(batch);
+
+      }
+    });
+  }
+
+  /**
+   * Write audit events to the audit table, or to a daily file when audit sink is "file"
+   *
+   * @param batch audit events
+   * @return completes when all events are written
+   */
+  private Future<Void> writeAudit(List<JsonObject> batch) {
+
+    JsonObject auditConfig = appConfig.getJsonObject("audit", new JsonObject());
+    if (!"file".equals(auditConfig.getString("sink"))) {
+
+      return Future.fromCompletionStage(dbUtils.insertDocuments(AUDIT, batch), context);
+    }
+
+    // one json document per line, a new file every day
+    String directory = auditConfig.getString("directory", DEFAULT_AUDIT_DIRECTORY);
+    String path = directory + "/audit-" + LocalDate.now(ZoneOffset.UTC) + ".jsonl";
+    Buffer lines = Buffer.buffer();
+    batch.forEach(event -> lines.appendBuffer(event.toBuffer()).appendString("\n"));
+
+    return vertx.fileSystem().mkdirs(directory)
+      .compose(v -> vertx.fileSystem().open(path, new OpenOptions().setAppend(true)))
+      .compose(file -> file.write(lines).eventually(v -> file.close()));
+  }
+
   /**
    * Initialize all routes for http server
    *
@@ -63,7 +466,14 @@ public class ServerInitializerVerticle extends AbstractVerticle {
 
     Router router = Router.router(vertx);
 
+    router.get("/feature").handler(this::limitRate);
+    router.post("/feature").handler(this::limitRate);
+    router.route("/feature").handler(this::requireReady);
     router.route("/feature").handler(BodyHandler.create());
+    router.get("/feature/stats").handler(this::getStats);
+    router.get("/audit/stats").handler(this::getAuditStats);
+    router.get("/health/live").handler(this::getLiveness);
+    router.get("/health/ready").handler(this::getReadiness);
     router.post("/feature").handler(this::validatePostPermission).handler(this::changePermission);
     router.get("/feature").handler(this::validateGetParams).handler(this::getPermission);
     router.route("/").handler(this::getRoot);
@@ -72,35 +482,114 @@ public class ServerInitializerVerticle extends AbstractVerticle {
   }
 
   /**
-   * A handler to validate POST request to /feature.
-   * Checks on json body based on provided json schema in src/main/resources/json_schema.json
+   * A handler to reject requests that need the database with Http Status Service Unavailable (503) and a Retry-After
+   * header until startup is complete. The http server is listening before the database is connected.
    *
    * @param routingContext Represents the context for the handling of a request in Vert.x-Web
    */
-  private void validatePostPermission(RoutingContext routingContext) {
+  private void requireReady(RoutingContext routingContext) {
 
-    Validator validator = new Validator("src/main/resources/json_schema.json", vertx);
+    if (ready) {
 
-    // validate json body with schema
-    CompletableFuture<Boolean> validate = validator.validate(routingContext.getBodyAsJson());
-    validate.whenComplete((validated, exception) -> {
+      routingContext.next();
 
-      if (exception != null) {
+    } else {
 
-        logger.error("Validation failed: ", exception);
-        routingContext.fail(400, exception);
+      routingContext.response().putHeader(HttpHeaders.RETRY_AFTER, "1");
+      createServiceUnavailable(routingContext, new JsonObject().put("error", "server is starting"));
 
-      } else {
+    }
+  }
+
+  /**
+   * A handler to limit the request rate of each client on routes with a rate limit.
+   * Limits are looked up by method and route path, so that e.g. /feature/ counts against the limit of /feature.
+   * Sets X-RateLimit-Limit, X-RateLimit-Remaining and X-RateLimit-Reset headers, and returns
+   * Http Status Too Many Requests (429) with a Retry-After header when the client's limit is exceeded.
+   *
+   * @param routingContext Represents the context for the handling of a request in Vert.x-Web
+   */
+  private void limitRate(RoutingContext routingContext) {
+
+    HttpServerRequest request = routingContext.request();
+    String route = request.method().name() + " " + routingContext.currentRoute().getPath();
+    RateLimiter.Limit limit = rateLimiter.getLimit(route);
+    if (limit == null) {
+      routingContext.next();
+      return;
+    }
+
+    RateLimiter.Decision decision = rateLimiter.tryAcquire(route, limit, clientKey(request, limit.getKey()), System.nanoTime());
+    routingContext.response()
+      .putHeader("X-RateLimit-Limit", String.valueOf(decision.getLimit()))
+      .putHeader("X-RateLimit-Remaining", String.valueOf(decision.getRemaining()))
+      .putHeader("X-RateLimit-Reset", String.valueOf(decision.getResetSeconds()));
+
+    if (decision.isAllowed()) {
+
+      routingContext.next();
+
+    } else {
 
-        routingContext.next();
+      logger.debug("Rate limit exceeded on " + route);
+      routingContext.response().putHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.getRetryAfterSeconds()));
+      createTooManyRequests(routingContext, new JsonObject().put("error", "rate limit exceeded"));
 
+    }
+  }
+
+  /**
+   * Identify the client of a request for rate limiting
+   *
+   * @param request http request
+   * @param key     what identifies a client
+   * @return api key, email or remote address, prefixed with its kind
+   */
+  private static String clientKey(HttpServerRequest request, RateLimiter.Limit.Key key) {
+
+    if (key == RateLimiter.Limit.Key.API_KEY) {
+      String apiKey = request.getHeader(API_KEY_HEADER);
+      if (apiKey != null) {
+        return "apiKey:" + apiKey;
       }
-    });
+    } else if (key == RateLimiter.Limit.Key.EMAIL) {
+      String email = request.getParam("email");
+      if (email != null) {
+        return "email:" + email.toLowerCase();
+      }
+    }
+
+    return "ip:" + (request.remoteAddress() == null ? null : request.remoteAddress().host());
+  }
+
+  /**
+   * A handler to validate POST request to /feature.
+   * Checks types and formats of featureName, email and enable with Validator.parsePermissionChange.
+   * Body is parsed as cbor for Content-Type application/cbor, otherwise as json.
+   *
+   * @param routingContext Represents the context for the handling of a request in Vert.x-Web
+   */
+  private void validatePostPermission(RoutingContext routingContext) {
+
+    String contentType = routingContext.request().getHeader(HttpHeaders.CONTENT_TYPE);
+
+    try {
+
+      // parse and validate body in a single pass
+      PermissionChange change = Validator.parsePermissionChange(MediaTypeCodec.factory(contentType), routingContext.getBody());
+      routingContext.put(REQUEST_BODY, change);
+      routingContext.next();
+
+    } catch (IllegalArgumentException e) {
+
+      logger.error("Validation failed: " + e.getMessage());
+      routingContext.fail(400, e);
+    }
   }
 
   /**
    * A  handler to validate on the parameters received by GET request for /feature
-   * featureName can only be in string or combination of string with number
+   * featureName can be any string that is not a number
    *
    * @param routingContext Represents the context for the handling of a request in Vert.x-Web
    */
@@ -119,7 +608,7 @@ public class ServerInitializerVerticle extends AbstractVerticle {
 
     if (!isValidEmail || !isValidFeatureName) {
 
-      String error = !isValidEmail ? "email parameter is not in the correct format" : "featureName needs to contain only string or combination of string with numbers.";
+      String error = !isValidEmail ? "email parameter is not in the correct format" : "featureName needs to contain at least one character that is not a digit.";
       error = !isValidEmail && !isValidFeatureName ? "email and featureName are not in the correct format" : error;
       logger.error("Validation failed for get parameters " + error);
 
@@ -144,8 +633,71 @@ public class ServerInitializerVerticle extends AbstractVerticle {
     createOk(routingContext, json.encodePrettily());
   }
 
+  /**
+   * A handler to handle GET request to /health/live.
+   * Returns Http Status OK (200) as long as the server is able to handle requests.
+   *
+   * @param routingContext Represents the context for the handling of a request in Vert.x-Web
+   */
+  private void getLiveness(RoutingContext routingContext) {
+
+    createOk(routingContext, new JsonObject().put("status", "UP"));
+  }
+
+  /**
+   * A handler to handle GET request to /health/ready.
+   * Returns Http Status OK (200) once startup is complete, otherwise Http Status Service Unavailable (503).
+   *
+   * @param routingContext Represents the context for the handling of a request in Vert.x-Web
+   */
+  private void getReadiness(RoutingContext routingContext) {
+
+    if (ready) {
+      createOk(routingContext, new JsonObject().put("status", "UP"));
+    } else {
+      createServiceUnavailable(routingContext, new JsonObject().put("status", "DOWN"));
+    }
+  }
+
+  /**
+   * A handler to handle GET request to /feature/stats.
+   * Returns live evaluation counts of all features, or of the feature in featureName parameter.
+   *
+   * @param routingContext Represents the context for the handling of a request in Vert.x-Web
+   */
+  private void getStats(RoutingContext routingContext) {
+
+    String featureName = routingContext.request().getParam("featureName");
+    if (featureName == null) {
+
+      createOk(routingContext, featureStats.toJson());
+
+    } else {
+
+      JsonObject stats = featureStats.toJson(featureName);
+      if (stats != null) {
+        createOk(routingContext, stats);
+      } else {
+        routingContext.fail(404);
+      }
+    }
+  }
+
+  /**
+   * A handler to handle GET request to /audit/stats.
+   * Returns depth of the audit queue and counts of written, dropped and rejected audit events.
+   *
+   * @param routingContext Represents the context for the handling of a request in Vert.x-Web
+   */
+  private void getAuditStats(RoutingContext routingContext) {
+
+    createOk(routingContext, auditLog.toJson());
+  }
+
   /**
    * A handler to handle GET request to /feature.
+   * Explicit overrides in the rollout rule of the feature are evaluated first. Otherwise, the user's permission
+   * document decides access, and only users without one are checked against the domains and percentage of the rule.
    *
    * @param routingContext Represents the context for the handling of a request in Vert.x-Web
    */
@@ -158,36 +710,64 @@ public class ServerInitializerVerticle extends AbstractVerticle {
     String email = request.getParam("email");
     String featureName = request.getParam("featureName");
 
+    // explicit overrides of rollout rule are evaluated in memory
+    Boolean canAccess = rolloutEvaluator.evaluateOverride(featureName, email);
+    if (canAccess != null) {
+
+      featureStats.record(featureName, canAccess ? FeatureStats.Outcome.ENABLED : FeatureStats.Outcome.DISABLED);
+      createOk(routingContext, new JsonObject().put("canAccess", canAccess));
+      return;
+    }
+
     // create query for database
     JsonObject query = new JsonObject()
                       .put("featureName", featureName)
                       .put("email", email);
 
     // find document in database
-    CompletableFuture<JsonObject> findFuture = dbUtils.findDocument(PERMISSIONS, query);
+    CompletableFuture<JsonObject> findFuture = dbUtils.findDocument(PERMISSIONS, query, dbUtils.getOperationOptions("getPermission"));
     logger.info("Finding document in database with email: " + email + " & featureName: " + featureName);
     findFuture.whenComplete((doc, exception) -> {
 
-      // error handling
-      if (exception != null) {
+      try {
 
-        logger.error("Something went wrong while searching for document in database: ", exception);
-        routingContext.fail(500, exception);
+        // error handling
+        if (exception != null) {
 
-      } else {
+          logger.error("Something went wrong while searching for document in database: ", exception);
+          routingContext.fail(500, exception);
 
-        // document exists in database
-        if (doc != null) {
+        } else {
 
-          JsonObject body = new JsonObject().put("canAccess", doc.getMap().get("enable"));
-          createOk(routingContext, body.encodePrettily());
+          // document exists in database
+          if (doc != null) {
 
-        } else {
+            Object enable = doc.getMap().get("enable");
+            featureStats.record(featureName, Boolean.TRUE.equals(enable) ? FeatureStats.Outcome.ENABLED : FeatureStats.Outcome.DISABLED);
 
-          // return response with Http Status Not Found
-          routingContext.fail(404);
+            JsonObject body = new JsonObject().put("canAccess", enable);
+            createOk(routingContext, body);
 
+          } else if (rolloutEvaluator.hasRule(featureName)) {
+
+            // feature is rolled out, to this user's domain or bucket or not
+            boolean rolledOut = rolloutEvaluator.evaluateRollout(featureName, email);
+            featureStats.record(featureName, rolledOut ? FeatureStats.Outcome.ENABLED : FeatureStats.Outcome.DISABLED);
+            createOk(routingContext, new JsonObject().put("canAccess", rolledOut));
+
+          } else {
+
+            // return response with Http Status Not Found
+            featureStats.record(featureName, FeatureStats.Outcome.NOT_FOUND);
+            routingContext.fail(404);
+
+          }
         }
+
+      } catch (RuntimeException e) {
+
+        logger.error("Failed to get permission: ", e);
+        routingContext.fail(500, e);
       }
     });
   }
@@ -196,39 +776,60 @@ public class ServerInitializerVerticle extends AbstractVerticle {
    * A handler to handle POST request to /feature to add or change user access for a feature
    * Returns an empty response with HTTP Status OK (200) when the database is updated successfully,
    * otherwise returns Http Status Not Modified (304).
+   * Every change is queued for the audit log with the previous and new value. When the audit queue is full,
+   * the change is rejected with Http Status Service Unavailable (503) or goes unaudited, depending on the overflow policy.
    *
    * @param routingContext Represents the context for the handling of a request in Vert.x-Web
    */
   private void changePermission(RoutingContext routingContext) {
 
-    // get request body
-    JsonObject request = routingContext.getBodyAsJson();
+    // get request body parsed by validatePostPermission
+    PermissionChange request = routingContext.get(REQUEST_BODY);
+
+    // reserve room for the audit event before changing anything
+    boolean audited = auditLog.reserve();
+    if (!audited && auditLog.getPolicy() == AuditLog.OverflowPolicy.BACKPRESSURE) {
+
+      logger.warn("Audit log is full. Permission change is rejected");
+      routingContext.response().putHeader(HttpHeaders.RETRY_AFTER, "1");
+      createServiceUnavailable(routingContext, new JsonObject().put("error", "audit log is full"));
+      return;
+    }
 
     // create query
     JsonObject query = new JsonObject()
-      .put("featureName", request.getValue("featureName"))
-      .put("email", request.getValue("email"));
+      .put("featureName", request.getFeatureName())
+      .put("email", request.getEmail());
 
     // update instruction for existing document in database
-    JsonObject update = new JsonObject().put("$set", new JsonObject().put("enable", request.getValue("enable")));
+    JsonObject update = new JsonObject().put("$set", new JsonObject().put("enable", request.getEnable()));
 
     // update document in database if exists. Otherwise, add document to database
-    CompletableFuture<MongoClientUpdateResult> updatedPermission = dbUtils.updateDocument(PERMISSIONS, query, update);
+    CompletableFuture<MongoClientUpdateResult> updatedPermission = dbUtils.updateDocument(PERMISSIONS, query, update,
+      dbUtils.getOperationOptions("changePermission"));
     updatedPermission.whenComplete((result, updateException) -> {
 
-      // error handling
-      if (updateException != null) {
+      // the reserved slot is released unless it holds the audit event
+      boolean appended = false;
 
-        logger.error("Something went wrong while updating document in database: ", updateException);
+      try {
 
-        // return response with Http Status Internal Server Error
-        routingContext.fail(500, updateException);
+        // error handling
+        if (updateException != null) {
 
-      } else {
+          logger.error("Something went wrong while updating document in database: ", updateException);
+
+          // return response with Http Status Internal Server Error
+          routingContext.fail(500, updateException);
 
-        // add to database or modified document
-        if (result.getDocModified() != 0 || result.getDocUpsertedId() != null) {
+        } else if (result.getDocUpsertedId() != null || result.getDocModified() > 0) {
 
+          // add to database or modified document. Enable is required, so a modified document had the opposite value before
+          Boolean previousEnable = result.getDocUpsertedId() != null ? null : !request.getEnable();
+          if (audited) {
+            auditLog.append(createAuditEvent(routingContext, request, previousEnable));
+            appended = true;
+          }
           createOk(routingContext);
           logger.info("Updated document to database");
 
@@ -237,10 +838,43 @@ public class ServerInitializerVerticle extends AbstractVerticle {
           createNotModified(routingContext);
           logger.info("Document exists in database. No modification required. ");
         }
+
+      } catch (RuntimeException e) {
+
+        logger.error("Failed to change permission: ", e);
+        routingContext.fail(500, e);
+
+      } finally {
+
+        if (audited && !appended) {
+          auditLog.release();
+        }
       }
     });
   }
 
+  /**
+   * Create audit event of a permission change
+   *
+   * @param routingContext Represents the context for the handling of a request in Vert.x-Web
+   * @param request        permission change
+   * @param previousEnable value before the change, null if the user had no permission for the feature or enable is missing
+   * @return audit event
+   */
+  private JsonObject createAuditEvent(RoutingContext routingContext, PermissionChange request, Boolean previousEnable) {
+
+    HttpServerRequest httpRequest = routingContext.request();
+
+    return new JsonObject()
+      .put("featureName", request.getFeatureName())
+      .put("email", request.getEmail())
+      .put("previousEnable", previousEnable)
+      .put("enable", request.getEnable())
+      .put("actor", httpRequest.getHeader(ACTOR_HEADER))
+      .put("remoteAddress", httpRequest.remoteAddress() == null ? null : httpRequest.remoteAddress().host())
+      .put("time", Instant.now().toString());
+  }
+
   /**
    * Create response with Http Status Not Modified (304)
    *
@@ -254,6 +888,36 @@ public class ServerInitializerVerticle extends AbstractVerticle {
       .end();
   }
 
+  /**
+   * Create response with Http Status Too Many Requests (429)
+   *
+   * @param routingContext Represents the context for the handling of a request in Vert.x-Web
+   * @param body           payload for request
+   */
+  private void createTooManyRequests(RoutingContext routingContext, JsonObject body) {
+
+    routingContext.response()
+      .setStatusCode(429)
+      .setStatusMessage("Too Many Requests")
+      .putHeader(HttpHeaders.CONTENT_TYPE, MediaTypeCodec.JSON)
+      .end(body.toBuffer());
+  }
+
+  /**
+   * Create response with Http Status Service Unavailable (503)
+   *
+   * @param routingContext Represents the context for the handling of a request in Vert.x-Web
+   * @param body           payload for request
+   */
+  private void createServiceUnavailable(RoutingContext routingContext, JsonObject body) {
+
+    routingContext.response()
+      .setStatusCode(503)
+      .setStatusMessage("Service Unavailable")
+      .putHeader(HttpHeaders.CONTENT_TYPE, MediaTypeCodec.JSON)
+      .end(body.toBuffer());
+  }
+
   /**
    * Create response with Http Status OK (200)
    *
@@ -280,4 +944,31 @@ public class ServerInitializerVerticle extends AbstractVerticle {
       .setStatusMessage("OK")
       .end(body);
   }
+
+  /**
+   * Create response with Http Status OK (200), encoded in cbor if the client accepts it. Otherwise, in json
+   *
+   * @param routingContext Represents the context for the handling of a request in Vert.x-Web
+   * @param body           payload for request
+   */
+  private void createOk(RoutingContext routingContext, JsonObject body) {
+
+    String contentType = MediaTypeCodec.responseType(routingContext.request().getHeader(HttpHeaders.ACCEPT));
+
+    try {
+
+      // the content type depends on the Accept header, caches need to keep a response per Accept header
+      routingContext.response()
+        .setStatusCode(200)
+        .setStatusMessage("OK")
+        .putHeader(HttpHeaders.CONTENT_TYPE, contentType)
+        .putHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+        .end(MediaTypeCodec.encode(contentType, body));
+
+    } catch (IOException e) {
+
+      logger.error("Failed to encode response body: ", e);
+      routingContext.fail(500, e);
+    }
+  }
 }
@@ -0,0 +1,180 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory queue of audit events, shared by all verticle instances through a local map.
+ * A slot is reserved before a change is written to database and filled with the event once the change is done,
+ * so that a full queue can reject a change before it happens. Events are taken in batches for writing.
+ */
+public class AuditLog implements Shareable {
+
+  /**
+   * What to do when the queue is full
+   */
+  public enum OverflowPolicy {
+    // reject the change, the client retries later
+    BACKPRESSURE,
+    // accept the change without an audit event
+    DROP_NEWEST,
+    // accept the change and drop the oldest queued event
+    DROP_OLDEST
+  }
+
+  private final int capacity;
+  private final OverflowPolicy policy;
+  private final Deque<JsonObject> events = new ConcurrentLinkedDeque<>();
+
+  // queued events and reserved slots
+  private final AtomicInteger size = new AtomicInteger();
+
+  // queued events only, size of the deque is not constant time
+  private final AtomicInteger depth = new AtomicInteger();
+
+  private final LongAdder appended = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder failedBatches = new LongAdder();
+
+  /**
+   * @param capacity maximum number of queued events and reserved slots
+   * @param policy what to do when the queue is full
+   */
+  public AuditLog(int capacity, OverflowPolicy policy) {
+
+    this.capacity = capacity;
+    this.policy = policy;
+  }
+
+  public OverflowPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Reserve a slot for the event of a change. A reserved slot has to be filled with {@link #append(JsonObject)}
+   * or returned with {@link #release()}.
+   * @return true if a slot is reserved. Otherwise, false: the change is rejected with policy BACKPRESSURE
+   * and goes unaudited with the drop policies
+   */
+  public boolean reserve() {
+
+    while (true) {
+
+      int current = size.get();
+      if (current < capacity) {
+        if (size.compareAndSet(current, current + 1)) {
+          return true;
+        }
+        continue;
+      }
+
+      // the slot of the dropped event is taken over
+      if (policy == OverflowPolicy.DROP_OLDEST && events.pollFirst() != null) {
+        depth.decrementAndGet();
+        dropped.increment();
+        return true;
+      }
+
+      if (policy == OverflowPolicy.BACKPRESSURE) {
+        rejected.increment();
+      } else {
+        dropped.increment();
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Queue event in a reserved slot
+   * @param event audit event
+   */
+  public void append(JsonObject event) {
+
+    events.addLast(event);
+    depth.incrementAndGet();
+    appended.increment();
+  }
+
+  /**
+   * Return a reserved slot that is not needed, e.g. when the change failed or didn't modify anything
+   */
+  public void release() {
+
+    size.decrementAndGet();
+  }
+
+  /**
+   * Take the oldest events for writing
+   * @param max maximum number of events
+   * @return events in order of appending, empty if none is queued
+   */
+  public List<JsonObject> take(int max) {
+
+    List<JsonObject> batch = new ArrayList<>();
+    JsonObject event;
+    while (batch.size() < max && (event = events.pollFirst()) != null) {
+      batch.add(event);
+    }
+    depth.addAndGet(-batch.size());
+    size.addAndGet(-batch.size());
+
+    return batch;
+  }
+
+  /**
+   * Count events of a batch as written
+   * @param batch events from {@link #take(int)}
+   */
+  public void written(List<JsonObject> batch) {
+
+    written.add(batch.size());
+  }
+
+  /**
+   * Return events of a batch that could not be written to the front of the queue so that they are written
+   * with the next batch, in order. The queue may exceed its capacity until they are written.
+   * @param batch events from {@link #take(int)}
+   */
+  public void restore(List<JsonObject> batch) {
+
+    failedBatches.increment();
+    size.addAndGet(batch.size());
+    for (int i = batch.size() - 1; i >= 0; i--) {
+      events.addFirst(batch.get(i));
+    }
+    depth.addAndGet(batch.size());
+  }
+
+  /**
+   * @return number of queued events
+   */
+  public int depth() {
+
+    return depth.get();
+  }
+
+  /**
+   * @return queue depth and event counters, e.g. { "depth": 3, "capacity": 10000, "appended": 120, ... }
+   */
+  public JsonObject toJson() {
+
+    return new JsonObject()
+      .put("depth", depth())
+      .put("capacity", capacity)
+      .put("policy", policy.name())
+      .put("appended", appended.sum())
+      .put("written", written.sum())
+      .put("dropped", dropped.sum())
+      .put("rejected", rejected.sum())
+      .put("failedBatches", failedBatches.sum());
+  }
+}
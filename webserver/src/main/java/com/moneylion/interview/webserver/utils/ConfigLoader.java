@@ -0,0 +1,155 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.config.ConfigRetriever;
+import io.vertx.config.ConfigRetrieverOptions;
+import io.vertx.config.ConfigStoreOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Load server configuration asynchronously. Sources are merged in order of precedence, later ones win:
+ * <ol>
+ *   <li>conf/config.json on the classpath</li>
+ *   <li>deployment config of the verticle</li>
+ *   <li>optional json file at the path in system property webserver.config or env variable WEBSERVER_CONFIG</li>
+ *   <li>env variables prefixed WEBSERVER_ with __ between levels, e.g. WEBSERVER_mongo__profile=local</li>
+ *   <li>system properties prefixed webserver. with . between levels, e.g. -Dwebserver.http.port=3001</li>
+ * </ol>
+ * Sources are scanned again every configScanPeriodMS so that changes can be applied without a restart. The scan period
+ * is read from the deployment config only, since the other sources are not read yet when the retriever is created.
+ */
+public class ConfigLoader {
+
+  public static final String DEFAULT_CONFIG = "conf/config.json";
+
+  private static final String SYS_PREFIX = "webserver.";
+  private static final String ENV_PREFIX = "WEBSERVER_";
+  private static final String CONFIG_PATH_SYS = SYS_PREFIX + "config";
+  private static final String CONFIG_PATH_ENV = ENV_PREFIX + "CONFIG";
+  private static final long DEFAULT_SCAN_PERIOD_MS = 5000;
+
+  /**
+   * Create config retriever for server configuration
+   * @param deploymentConfig deployment config of the verticle, overrides conf/config.json. Holds configScanPeriodMS
+   * @return config retriever
+   */
+  public static ConfigRetriever create(Vertx vertx, JsonObject deploymentConfig) {
+
+    ConfigRetrieverOptions options = new ConfigRetrieverOptions()
+      .setIncludeDefaultStores(false)
+      .setScanPeriod(deploymentConfig.getLong("configScanPeriodMS", DEFAULT_SCAN_PERIOD_MS))
+      .addStore(new ConfigStoreOptions()
+        .setType("file")
+        .setFormat("json")
+        .setConfig(new JsonObject().put("path", DEFAULT_CONFIG)))
+      .addStore(new ConfigStoreOptions()
+        .setType("json")
+        .setConfig(deploymentConfig));
+
+    // file with overrides for this environment
+    String configPath = System.getProperty(CONFIG_PATH_SYS, System.getenv(CONFIG_PATH_ENV));
+    if (configPath != null) {
+      options.addStore(new ConfigStoreOptions()
+        .setType("file")
+        .setFormat("json")
+        .setOptional(true)
+        .setConfig(new JsonObject().put("path", configPath)));
+    }
+
+    return ConfigRetriever.create(vertx, options)
+      .setConfigurationProcessor(config -> applyOverrides(config, System.getenv(), System.getProperties()));
+  }
+
+  /**
+   * Apply overrides from env variables and system properties to config
+   * @param config merged config of json sources
+   * @param env env variables
+   * @param properties system properties
+   * @return config with overrides
+   */
+  public static JsonObject applyOverrides(JsonObject config, Map<String, String> env, Properties properties) {
+
+    for (Map.Entry<String, String> entry : env.entrySet()) {
+      String key = entry.getKey();
+      if (key.startsWith(ENV_PREFIX) && !key.equals(CONFIG_PATH_ENV)) {
+        put(config, key.substring(ENV_PREFIX.length()).split("__"), entry.getValue());
+      }
+    }
+
+    for (String key : properties.stringPropertyNames()) {
+      if (key.startsWith(SYS_PREFIX) && !key.equals(CONFIG_PATH_SYS)) {
+        put(config, key.substring(SYS_PREFIX.length()).split("\\."), properties.getProperty(key));
+      }
+    }
+
+    return config;
+  }
+
+  /**
+   * Get config of the selected mongodb profile
+   * @param config server config
+   * @return mongodb config in "mongo.profiles" selected by "mongo.profile"
+   */
+  public static JsonObject mongoConfig(JsonObject config) {
+
+    JsonObject mongo = config.getJsonObject("mongo", new JsonObject());
+    String profile = mongo.getString("profile");
+    JsonObject mongoConfig = mongo.getJsonObject("profiles", new JsonObject()).getJsonObject(profile);
+    if (mongoConfig == null) {
+      throw new IllegalArgumentException("Unknown mongo profile: " + profile);
+    }
+
+    return mongoConfig;
+  }
+
+  /**
+   * Put value at path, creating intermediate objects
+   */
+  private static void put(JsonObject config, String[] path, String value) {
+
+    JsonObject parent = config;
+    for (int i = 0; i < path.length - 1; i++) {
+      JsonObject child = parent.getValue(path[i]) instanceof JsonObject ? parent.getJsonObject(path[i]) : null;
+      if (child == null) {
+        child = new JsonObject();
+        parent.put(path[i], child);
+      }
+      parent = child;
+    }
+
+    parent.put(path[path.length - 1], convert(value));
+  }
+
+  /**
+   * Convert value to boolean, number, json or null if possible. Otherwise, keep it as string
+   */
+  private static Object convert(String value) {
+
+    String trimmed = value.trim();
+    if (trimmed.equals("true") || trimmed.equals("false") || trimmed.equals("null")
+      || trimmed.startsWith("{") || trimmed.startsWith("[") || isNumber(trimmed)) {
+      try {
+        return Json.decodeValue(trimmed);
+      } catch (DecodeException e) {
+        return value;
+      }
+    }
+
+    return value;
+  }
+
+  private static boolean isNumber(String value) {
+
+    if (value.isEmpty()) {
+      return false;
+    }
+
+    char first = value.charAt(0);
+    return first == '-' || (first >= '0' && first <= '9');
+  }
+}
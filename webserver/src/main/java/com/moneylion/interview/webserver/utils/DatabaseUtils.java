@@ -1,80 +1,264 @@
 package com.moneylion.interview.webserver.utils;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
 import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
 import io.vertx.ext.mongo.MongoClientUpdateResult;
 import io.vertx.ext.mongo.UpdateOptions;
+import io.vertx.ext.mongo.impl.config.MongoClientOptionsParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.CompletableFuture;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class DatabaseUtils {
 
   private MongoClient client;
+  private Vertx vertx;
+  private JsonObject config;
   private static final Logger logger = LoggerFactory.getLogger(DatabaseUtils.class);
+  private static final long DEFAULT_CAUSAL_WINDOW_MS = 90000;
+  private static final String RECENT_WRITES = "webserver.recent_writes";
+
+  // time to let in-flight operations finish before closing a replaced client
+  private static final long CLIENT_CLOSE_DELAY_MS = 30000;
+
+  // options per operation name, configured under "operations"
+  private volatile Map<String, OperationOptions> operations = new HashMap<>();
+
+  // clients for non-primary read preferences, created on first use
+  private Map<ReadPreference, MongoClient> readClients = new ConcurrentHashMap<>();
+
+  // connection pools are replaced when connection settings change
+  private String poolName = MongoClient.DEFAULT_POOL_NAME;
+
+  // documents written with causal consistency -> time until reads for them are pinned to primary.
+  // Shared by all instances in the process, so that a GET sees a POST handled on another event loop
+  private RecentWrites recentWrites = new RecentWrites();
+  private long causalWindowMs = DEFAULT_CAUSAL_WINDOW_MS;
 
   public DatabaseUtils() {}
 
   /**
    * Connect to mongodb and create database as well as table
-   * @param configFile path to configuration file for mongodb
+   * @param config configuration for mongodb
    * @param collections name for table
+   * @return completes when all tables exist in database. Fails if database cannot be reached
    */
-  public void initializeDatabase(Vertx vertx, String configFile, String... collections) {
+  public CompletableFuture<Void> initializeDatabase(Vertx vertx, JsonObject config, String... collections) {
 
-    String configText;
-    try {
-      configText = FileReader.fileToString(configFile, StandardCharsets.UTF_8);
-    } catch (IOException e) {
-      logger.error(e.toString());
-      throw new RuntimeException(e);
-    }
+    CompletableFuture<Void> initializeFuture = new CompletableFuture<>();
 
     // connect to mongodb with config
-    JsonObject config = new JsonObject(configText);
-    client = MongoClient.createShared(vertx, config);
+    this.vertx = vertx;
+    this.config = config;
+    client = MongoClient.createShared(vertx, config, poolName);
+    applyOperationOptions(config);
+    shareRecentWrites(vertx);
+
+    // reads after a causally consistent write go to primary until secondaries are guaranteed to have caught up
+    vertx.setPeriodic(causalWindowMs, id -> {
+      long now = System.currentTimeMillis();
+      recentWrites.expiries.values().removeIf(expiry -> expiry <= now);
+    });
 
     // retrieve table from database
     // create table if doesn't exist in database
     client.getCollections(asyncResult -> {
       if (asyncResult.failed()) {
-        throw new RuntimeException(asyncResult.cause());
+        initializeFuture.completeExceptionally(asyncResult.cause());
       } else {
         List<String> collectionsInDB = asyncResult.result();
+        List<CompletableFuture<Void>> createFutures = new ArrayList<>();
         for (String collection : collections) {
           if (!collectionsInDB.contains(collection)) {
+            CompletableFuture<Void> createFuture = new CompletableFuture<>();
+            createFutures.add(createFuture);
             client.createCollection(collection, result -> {
               if (result.failed()) {
-                throw new RuntimeException(result.cause());
+                createFuture.completeExceptionally(result.cause());
               } else {
                 logger.info("Create table in database: " + collection);
+                createFuture.complete(null);
               }
             });
           } else {
             logger.info("Table already exists in database: " + collection);
           }
         }
+
+        CompletableFuture.allOf(createFutures.toArray(new CompletableFuture[0])).whenComplete((result, exception) -> {
+          if (exception != null) {
+            initializeFuture.completeExceptionally(exception);
+          } else {
+            initializeFuture.complete(null);
+          }
+        });
       }
     });
+
+    return initializeFuture;
+  }
+
+  /**
+   * Apply changed configuration for mongodb. Read preference and write concern of operations apply to the next
+   * operation. If connection settings changed, new connection pools are opened and the old ones are closed once
+   * in-flight operations are done.
+   * @param newConfig configuration for mongodb
+   */
+  public void reconfigure(JsonObject newConfig) {
+
+    applyOperationOptions(newConfig);
+
+    if (connectionSettings(newConfig).equals(connectionSettings(config))) {
+      config = newConfig;
+      return;
+    }
+
+    // switch to new pools, shared by all instances with the same settings
+    MongoClient oldClient = client;
+    Map<ReadPreference, MongoClient> oldReadClients = readClients;
+    config = newConfig;
+    poolName = MongoClient.DEFAULT_POOL_NAME + "-" + Integer.toHexString(connectionSettings(newConfig).hashCode());
+    client = MongoClient.createShared(vertx, config, poolName);
+    readClients = new ConcurrentHashMap<>();
+    logger.info("Connection settings for mongodb changed, switched to connection pool: " + poolName);
+
+    vertx.setTimer(CLIENT_CLOSE_DELAY_MS, id -> {
+      oldClient.close();
+      oldReadClients.values().forEach(MongoClient::close);
+    });
+  }
+
+  /**
+   * Use the recent writes of all instances of this class in the vertx instance
+   * @param vertx vertx instance the recent writes are shared in
+   */
+  void shareRecentWrites(Vertx vertx) {
+
+    LocalMap<String, RecentWrites> shared = vertx.sharedData().getLocalMap(RECENT_WRITES);
+    RecentWrites existing = shared.putIfAbsent(RECENT_WRITES, recentWrites);
+    if (existing != null) {
+      recentWrites = existing;
+    }
+  }
+
+  /**
+   * Read options per operation and causal consistency window from config
+   * @param config configuration for mongodb
+   */
+  void applyOperationOptions(JsonObject config) {
+
+    // read preference and write concern per operation
+    Map<String, OperationOptions> newOperations = new HashMap<>();
+    JsonObject operationsConfig = config.getJsonObject("operations", new JsonObject());
+    for (String operation : operationsConfig.fieldNames()) {
+      newOperations.put(operation, OperationOptions.fromJson(operationsConfig.getJsonObject(operation)));
+    }
+
+    operations = newOperations;
+    causalWindowMs = config.getLong("causalWindowMS", DEFAULT_CAUSAL_WINDOW_MS);
+  }
+
+  /**
+   * @param config configuration for mongodb
+   * @return config without the settings that can be applied to existing connection pools
+   */
+  private static JsonObject connectionSettings(JsonObject config) {
+
+    JsonObject settings = config.copy();
+    settings.remove("operations");
+    settings.remove("causalWindowMS");
+
+    return settings;
+  }
+
+  /**
+   * Open connections up to minPoolSize for every read preference in use, so that the first requests
+   * don't pay for connection setup
+   * @param collection table to send warm-up queries to
+   * @return completes when all warm-up queries are answered
+   */
+  public CompletableFuture<Void> warmUpPool(String collection) {
+
+    int primaryConnections = config.getInteger("minPoolSize", 0);
+    int readConnections = readPoolConfig().getInteger("minPoolSize", primaryConnections);
+    JsonObject query = new JsonObject().put("_id", "warmup");
+
+    // concurrent queries check out separate connections from the pool
+    List<CompletableFuture<JsonObject>> warmUpFutures = new ArrayList<>();
+    Set<ReadPreference> readPreferences = new HashSet<>();
+    readPreferences.add(ReadPreference.primary());
+    operations.values().forEach(options -> readPreferences.add(options.getReadPreference()));
+    for (ReadPreference readPreference : readPreferences) {
+      OperationOptions options = new OperationOptions(readPreference, null, false);
+      int connections = options.isPrimaryRead() ? primaryConnections : readConnections;
+      for (int i = 0; i < connections; i++) {
+        warmUpFutures.add(findDocument(collection, query, options));
+      }
+    }
+
+    logger.info("Warming up connection pool with " + warmUpFutures.size() + " queries");
+    return CompletableFuture.allOf(warmUpFutures.toArray(new CompletableFuture[0]));
+  }
+
+  /**
+   * Get read preference and write concern configured for an operation
+   * @param operation operation name in "operations" of the config file
+   * @return options for the operation. Defaults to primary reads and the client's write concern
+   */
+  public OperationOptions getOperationOptions(String operation) {
+
+    return operations.getOrDefault(operation, OperationOptions.DEFAULT);
   }
 
   public CompletableFuture<MongoClientUpdateResult> updateDocument(String collection, JsonObject query, JsonObject updateDoc) {
 
+    return updateDocument(collection, query, updateDoc, OperationOptions.DEFAULT);
+  }
+
+  /**
+   * Update document in database, insert document if it doesn't exist
+   * @param collection table name
+   * @param query query for document to update
+   * @param updateDoc update instruction
+   * @param operationOptions write concern and causal consistency for the update
+   * @return update result
+   */
+  public CompletableFuture<MongoClientUpdateResult> updateDocument(String collection, JsonObject query, JsonObject updateDoc,
+                                                                   OperationOptions operationOptions) {
+
     // update options : set upsert to true
     // upsert -> insert document if document doesn't exist
     UpdateOptions options = new UpdateOptions(true);
+    if (operationOptions.getWriteOption() != null) {
+      options.setWriteOption(operationOptions.getWriteOption());
+    }
 
     CompletableFuture<MongoClientUpdateResult> updateFuture = new CompletableFuture<>();
     client.updateCollectionWithOptions(collection, query, updateDoc, options, res -> {
       if (res.failed()) {
         updateFuture.completeExceptionally(res.cause());
       } else {
+        recordWrite(collection, query, operationOptions);
         updateFuture.complete(res.result());
       }
     });
@@ -90,9 +274,22 @@ public class DatabaseUtils {
    */
   public CompletableFuture<JsonObject> findDocument(String collection, JsonObject query) {
 
+    return findDocument(collection, query, OperationOptions.DEFAULT);
+  }
+
+  /**
+   * Find document in database with the read preference of the operation.
+   * Documents recently written with causal consistency are always read from primary.
+   * @param collection table name
+   * @param query query for database query
+   * @param operationOptions read preference for the query
+   * @return document if found. Otherwise, null
+   */
+  public CompletableFuture<JsonObject> findDocument(String collection, JsonObject query, OperationOptions operationOptions) {
+
     CompletableFuture<JsonObject> findFuture = new CompletableFuture<>();
 
-    client.findOne(collection, query,  null , res -> {
+    readClient(collection, query, operationOptions).findOne(collection, query,  null , res -> {
       if (res.succeeded()) {
         findFuture.complete(res.result());
         logger.debug("Found document in database: " + res.result() );
@@ -104,6 +301,90 @@ public class DatabaseUtils {
     return findFuture;
   }
 
+  /**
+   * Find all documents matching query in database
+   * @param collection table name
+   * @param query query for database query
+   * @return documents found. Empty if none is found
+   */
+  public CompletableFuture<List<JsonObject>> findDocuments(String collection, JsonObject query) {
+
+    CompletableFuture<List<JsonObject>> findFuture = new CompletableFuture<>();
+
+    client.find(collection, query, res -> {
+      if (res.succeeded()) {
+        findFuture.complete(res.result());
+        logger.debug("Found " + res.result().size() + " documents in database: " + collection);
+      } else {
+        findFuture.completeExceptionally(res.cause());
+      }
+    });
+
+    return findFuture;
+  }
+
+  /**
+   * Write a batch of operations to database in a single request
+   * @param collection table name
+   * @param operations inserts, updates, replaces or deletes
+   * @return bulk write result
+   */
+  public CompletableFuture<MongoClientBulkWriteResult> bulkWrite(String collection, List<BulkOperation> operations) {
+
+    CompletableFuture<MongoClientBulkWriteResult> bulkFuture = new CompletableFuture<>();
+
+    client.bulkWrite(collection, operations, res -> {
+      if (res.succeeded()) {
+        bulkFuture.complete(res.result());
+        logger.debug("Wrote " + operations.size() + " operations to database: " + collection);
+      } else {
+        bulkFuture.completeExceptionally(res.cause());
+      }
+    });
+
+    return bulkFuture;
+  }
+
+  /**
+   * Insert documents into database in a single request. Inserts are unordered, so that a failed insert doesn't stop
+   * the ones after it. Documents that already exist are counted as inserted, so that a batch can be written again
+   * after a partial failure: the driver adds the _id of each document to the JsonObject on the first attempt.
+   * @param collection table name
+   * @param documents documents to be placed in database
+   * @return completes when all documents are in database
+   */
+  public CompletableFuture<Void> insertDocuments(String collection, List<JsonObject> documents) {
+
+    CompletableFuture<Void> insertFuture = new CompletableFuture<>();
+    List<BulkOperation> inserts = documents.stream().map(BulkOperation::createInsert).collect(Collectors.toList());
+
+    client.bulkWriteWithOptions(collection, inserts, new BulkWriteOptions(false), res -> {
+      if (res.succeeded() || isDuplicateKeysOnly(res.cause())) {
+        insertFuture.complete(null);
+        logger.debug("Inserted " + documents.size() + " documents into database: " + collection);
+      } else {
+        insertFuture.completeExceptionally(res.cause());
+      }
+    });
+
+    return insertFuture;
+  }
+
+  /**
+   * @param exception cause of a failed bulk write
+   * @return true if every failed write of the bulk write is a duplicate key. Otherwise, false
+   */
+  static boolean isDuplicateKeysOnly(Throwable exception) {
+
+    if (!(exception instanceof MongoBulkWriteException)) {
+      return false;
+    }
+
+    MongoBulkWriteException bulkException = (MongoBulkWriteException) exception;
+    return bulkException.getWriteConcernError() == null && bulkException.getWriteErrors().stream()
+      .allMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY);
+  }
+
   /**
    * insert document into database
    * @param collection table name
@@ -127,5 +408,100 @@ public class DatabaseUtils {
     return insertFuture;
   }
 
+  /**
+   * Select client to read a document with
+   * @param collection table name
+   * @param query query for document
+   * @param operationOptions read preference for the query
+   * @return primary client if document was written recently. Otherwise, client for the read preference
+   */
+  private MongoClient readClient(String collection, JsonObject query, OperationOptions operationOptions) {
 
+    if (readsFromPrimary(collection, query, operationOptions)) {
+      return client;
+    }
+
+    return readClients.computeIfAbsent(operationOptions.getReadPreference(), this::createReadClient);
+  }
+
+  /**
+   * Remember a causally consistent write so that reads of the document go to primary for the causal window
+   * @param collection table name
+   * @param query query for document written
+   * @param operationOptions causal consistency of the write
+   */
+  void recordWrite(String collection, JsonObject query, OperationOptions operationOptions) {
+
+    if (operationOptions.isCausalConsistency()) {
+      recentWrites.expiries.put(documentKey(collection, query), System.currentTimeMillis() + causalWindowMs);
+    }
+  }
+
+  /**
+   * @param collection table name
+   * @param query query for document
+   * @param operationOptions read preference for the query
+   * @return true if the read goes to primary: by read preference, or because the document was written recently
+   */
+  boolean readsFromPrimary(String collection, JsonObject query, OperationOptions operationOptions) {
+
+    if (operationOptions.isPrimaryRead()) {
+      return true;
+    }
+
+    // read your own writes
+    if (!recentWrites.expiries.isEmpty()) {
+      Long expiry = recentWrites.expiries.get(documentKey(collection, query));
+      return expiry != null && expiry > System.currentTimeMillis();
+    }
+
+    return false;
+  }
+
+  /**
+   * @return pool sizes for clients of non-primary read preferences, configured under "readPool"
+   */
+  private JsonObject readPoolConfig() {
+
+    return config.getJsonObject("readPool", new JsonObject());
+  }
+
+  /**
+   * Create a client with the same settings as the primary client except for the read preference and pool size.
+   * Each read preference has its own connection pool, sized by "readPool" so that it doesn't double the connections
+   * of the primary pool.
+   * @param readPreference read preference for client
+   * @return mongo client
+   */
+  private MongoClient createReadClient(ReadPreference readPreference) {
+
+    JsonObject readPool = readPoolConfig();
+    MongoClientSettings settings = MongoClientSettings.builder(new MongoClientOptionsParser(vertx, config).settings())
+      .readPreference(readPreference)
+      .applyToConnectionPoolSettings(pool -> {
+        if (readPool.containsKey("minPoolSize")) {
+          pool.minSize(readPool.getInteger("minPoolSize"));
+        }
+        if (readPool.containsKey("maxPoolSize")) {
+          pool.maxSize(readPool.getInteger("maxPoolSize"));
+        }
+      })
+      .build();
+
+    logger.info("Create mongo client with read preference: " + readPreference);
+    return MongoClient.createWithMongoSettings(vertx, config, poolName + "-" + readPreference, settings);
+  }
+
+  private static String documentKey(String collection, JsonObject query) {
+
+    return collection + ":" + query.encode();
+  }
+
+  /**
+   * Expiry time per document written with causal consistency
+   */
+  private static class RecentWrites implements Shareable {
+
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+  }
 }
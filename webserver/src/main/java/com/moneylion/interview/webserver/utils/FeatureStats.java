@@ -0,0 +1,191 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory counters of feature evaluations, shared by all verticle instances through a local map.
+ * Counters are striped (LongAdder) so that event loops don't contend on increments. Totals only grow;
+ * deltas since the last flush are taken for writing to database.
+ */
+public class FeatureStats implements Shareable {
+
+  public static final String OTHER_FEATURES = "_other";
+
+  public enum Outcome { ENABLED, DISABLED, NOT_FOUND }
+
+  private final int maxFeatures;
+  private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+  /**
+   * @param maxFeatures number of features counted separately. Further features, and features that were only
+   *                    not found, are counted under "_other"
+   */
+  public FeatureStats(int maxFeatures) {
+
+    this.maxFeatures = maxFeatures;
+  }
+
+  /**
+   * Count outcome of a feature evaluation. Not found doesn't create counters for a feature, so that requests for
+   * made up feature names don't use up the features counted separately
+   * @param featureName feature name
+   * @param outcome result of evaluation
+   */
+  public void record(String featureName, Outcome outcome) {
+
+    Counters featureCounters = counters.get(featureName);
+    if (featureCounters == null) {
+      int separate = counters.size() - (counters.containsKey(OTHER_FEATURES) ? 1 : 0);
+      featureCounters = separate < maxFeatures && outcome != Outcome.NOT_FOUND
+        ? counters.computeIfAbsent(featureName, name -> new Counters())
+        : counters.computeIfAbsent(OTHER_FEATURES, name -> new Counters());
+    }
+
+    featureCounters.get(outcome).increment();
+  }
+
+  /**
+   * @return live totals per feature, e.g. { "add": { "enabled": 10, "disabled": 2, "notFound": 0 } }
+   */
+  public JsonObject toJson() {
+
+    JsonObject json = new JsonObject();
+    counters.forEach((featureName, featureCounters) -> json.put(featureName, featureCounters.toJson()));
+
+    return json;
+  }
+
+  /**
+   * @param featureName feature name
+   * @return live totals of feature, or null if feature has not been evaluated
+   */
+  public JsonObject toJson(String featureName) {
+
+    Counters featureCounters = counters.get(featureName);
+    return featureCounters == null ? null : featureCounters.toJson();
+  }
+
+  /**
+   * Take counts since the last flush. Counts are marked as flushed until they are returned with {@link #restore(List)}
+   * @return deltas of features with new counts
+   */
+  public synchronized List<Delta> takeDeltas() {
+
+    List<Delta> deltas = new ArrayList<>();
+    counters.forEach((featureName, featureCounters) -> {
+      long[] delta = new long[Outcome.values().length];
+      boolean changed = false;
+      for (Outcome outcome : Outcome.values()) {
+        int i = outcome.ordinal();
+        long total = featureCounters.adders[i].sum();
+        delta[i] = total - featureCounters.flushed[i];
+        featureCounters.flushed[i] = total;
+        changed |= delta[i] != 0;
+      }
+      if (changed) {
+        deltas.add(new Delta(featureName, delta));
+      }
+    });
+
+    return deltas;
+  }
+
+  /**
+   * Return deltas that could not be flushed so that they are taken again with the next flush
+   * @param deltas deltas from {@link #takeDeltas()}
+   */
+  public synchronized void restore(List<Delta> deltas) {
+
+    for (Delta delta : deltas) {
+      Counters featureCounters = counters.get(delta.featureName);
+      for (Outcome outcome : Outcome.values()) {
+        featureCounters.flushed[outcome.ordinal()] -= delta.counts[outcome.ordinal()];
+      }
+    }
+  }
+
+  /**
+   * Counts of a feature since the last flush
+   */
+  public static class Delta {
+
+    private final String featureName;
+    private final long[] counts;
+
+    Delta(String featureName, long[] counts) {
+
+      this.featureName = featureName;
+      this.counts = counts;
+    }
+
+    public String getFeatureName() {
+      return featureName;
+    }
+
+    public long get(Outcome outcome) {
+      return counts[outcome.ordinal()];
+    }
+
+    /**
+     * @return $inc update instruction for the counts
+     */
+    public JsonObject toIncrement() {
+
+      JsonObject increment = new JsonObject();
+      for (Outcome outcome : Outcome.values()) {
+        increment.put(fieldName(outcome), counts[outcome.ordinal()]);
+      }
+
+      return new JsonObject().put("$inc", increment);
+    }
+  }
+
+  private static String fieldName(Outcome outcome) {
+
+    switch (outcome) {
+      case ENABLED:
+        return "enabled";
+      case DISABLED:
+        return "disabled";
+      default:
+        return "notFound";
+    }
+  }
+
+  private static class Counters {
+
+    private final LongAdder[] adders = new LongAdder[Outcome.values().length];
+
+    // totals written to database, guarded by FeatureStats lock
+    private final long[] flushed = new long[Outcome.values().length];
+
+    Counters() {
+
+      for (int i = 0; i < adders.length; i++) {
+        adders[i] = new LongAdder();
+      }
+    }
+
+    LongAdder get(Outcome outcome) {
+
+      return adders[outcome.ordinal()];
+    }
+
+    JsonObject toJson() {
+
+      JsonObject json = new JsonObject();
+      for (Outcome outcome : Outcome.values()) {
+        json.put(fieldName(outcome), adders[outcome.ordinal()].sum());
+      }
+
+      return json;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.moneylion.interview.webserver.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Encode response bodies and parse request bodies for the supported media types:
+ * application/json (default) and application/cbor for compact service-to-service calls.
+ */
+public class MediaTypeCodec {
+
+  public static final String JSON = "application/json";
+  public static final String CBOR = "application/cbor";
+
+  private static final JsonFactory jsonFactory = new JsonFactory();
+  private static final CBORFactory cborFactory = new CBORFactory();
+
+  // media range parameter refusing the type, e.g. "q=0" or " q = 0.000"
+  private static final Pattern REFUSED = Pattern.compile("\\s*q\\s*=\\s*0(\\.0{0,3})?\\s*", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Check whether content type is cbor
+   * @param contentType value of Content-Type or Accept header, may be null
+   * @return true if content type is application/cbor. Otherwise, false
+   */
+  public static boolean isCbor(String contentType) {
+
+    return contentType != null && contentType.regionMatches(true, 0, CBOR, 0, CBOR.length());
+  }
+
+  /**
+   * Choose the content type of a response body
+   * @param accept value of Accept header, may be null
+   * @return application/cbor if it is listed in Accept and not refused with q=0. Otherwise, application/json
+   */
+  public static String responseType(String accept) {
+
+    if (accept == null) {
+      return JSON;
+    }
+
+    for (String range : accept.split(",")) {
+
+      String[] parts = range.split(";");
+      if (!parts[0].trim().equalsIgnoreCase(CBOR)) {
+        continue;
+      }
+
+      boolean refused = false;
+      for (int i = 1; i < parts.length; i++) {
+        refused |= REFUSED.matcher(parts[i]).matches();
+      }
+
+      if (!refused) {
+        return CBOR;
+      }
+    }
+
+    return JSON;
+  }
+
+  /**
+   * Get streaming parser factory for content type
+   * @param contentType content type of body, json if null
+   * @return cbor factory for application/cbor. Otherwise, json factory
+   */
+  public static JsonFactory factory(String contentType) {
+
+    return isCbor(contentType) ? cborFactory : jsonFactory;
+  }
+
+  /**
+   * Encode json object to body
+   * @param contentType content type of body, json if null
+   * @param json json object to encode
+   * @return encoded body
+   * @throws IOException if json object cannot be encoded
+   */
+  public static Buffer encode(String contentType, JsonObject json) throws IOException {
+
+    if (!isCbor(contentType)) {
+      return json.toBuffer();
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+    try (JsonGenerator generator = cborFactory.createGenerator(out)) {
+      writeValue(generator, json);
+    }
+
+    return Buffer.buffer(out.toByteArray());
+  }
+
+  private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+
+    if (value instanceof JsonObject) {
+      generator.writeStartObject();
+      for (Map.Entry<String, Object> entry : (JsonObject) value) {
+        generator.writeFieldName(entry.getKey());
+        writeValue(generator, entry.getValue());
+      }
+      generator.writeEndObject();
+    } else if (value instanceof JsonArray) {
+      generator.writeStartArray();
+      for (Object item : (JsonArray) value) {
+        writeValue(generator, item);
+      }
+      generator.writeEndArray();
+    } else {
+      // strings, numbers, booleans and null
+      generator.writeObject(value);
+    }
+  }
+}
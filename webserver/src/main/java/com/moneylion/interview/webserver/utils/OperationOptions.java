@@ -0,0 +1,82 @@
+package com.moneylion.interview.webserver.utils;
+
+import com.mongodb.ReadPreference;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.WriteOption;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read preference, write concern and causal consistency settings for a single database operation.
+ * Configured per operation under "operations" in the mongodb config file, e.g.
+ * <pre>
+ * "getPermission"    : { "readPreference": "secondaryPreferred", "maxStalenessSeconds": 90 },
+ * "changePermission" : { "writeConcern": "MAJORITY", "causalConsistency": true }
+ * </pre>
+ */
+public class OperationOptions {
+
+  /**
+   * Reads from primary and writes with the write concern of the client configuration
+   */
+  public static final OperationOptions DEFAULT = new OperationOptions(ReadPreference.primary(), null, false);
+
+  private final ReadPreference readPreference;
+  private final WriteOption writeOption;
+  private final boolean causalConsistency;
+
+  public OperationOptions(ReadPreference readPreference, WriteOption writeOption, boolean causalConsistency) {
+
+    this.readPreference = readPreference;
+    this.writeOption = writeOption;
+    this.causalConsistency = causalConsistency;
+  }
+
+  /**
+   * Create operation options from json config
+   * @param json operation config. Missing entries fall back to primary reads and the client's write concern
+   * @return operation options
+   */
+  public static OperationOptions fromJson(JsonObject json) {
+
+    if (json == null) {
+      return DEFAULT;
+    }
+
+    // read preference, with optional max staleness for secondary reads
+    ReadPreference readPreference = ReadPreference.primary();
+    String mode = json.getString("readPreference");
+    if (mode != null) {
+      Long maxStalenessSeconds = json.getLong("maxStalenessSeconds");
+      readPreference = maxStalenessSeconds == null
+        ? ReadPreference.valueOf(mode)
+        : ReadPreference.valueOf(mode, Collections.emptyList(), maxStalenessSeconds, TimeUnit.SECONDS);
+    }
+
+    // write concern, e.g. ACKNOWLEDGED, JOURNALED, MAJORITY
+    String writeConcern = json.getString("writeConcern");
+    WriteOption writeOption = writeConcern == null ? null : WriteOption.valueOf(writeConcern.toUpperCase());
+
+    return new OperationOptions(readPreference, writeOption, json.getBoolean("causalConsistency", false));
+  }
+
+  public ReadPreference getReadPreference() {
+    return readPreference;
+  }
+
+  public WriteOption getWriteOption() {
+    return writeOption;
+  }
+
+  public boolean isCausalConsistency() {
+    return causalConsistency;
+  }
+
+  /**
+   * @return true if reads for this operation can be served by the default (primary) client
+   */
+  public boolean isPrimaryRead() {
+    return ReadPreference.primary().equals(readPreference);
+  }
+}
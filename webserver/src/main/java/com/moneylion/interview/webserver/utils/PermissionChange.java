@@ -0,0 +1,30 @@
+package com.moneylion.interview.webserver.utils;
+
+/**
+ * Validated body of a POST request to /feature
+ */
+public class PermissionChange {
+
+  private final String featureName;
+  private final String email;
+  private final Boolean enable;
+
+  public PermissionChange(String featureName, String email, Boolean enable) {
+
+    this.featureName = featureName;
+    this.email = email;
+    this.enable = enable;
+  }
+
+  public String getFeatureName() {
+    return featureName;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public Boolean getEnable() {
+    return enable;
+  }
+}
@@ -0,0 +1,282 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rate limiter per route and client, shared by all verticle instances through a local map.
+ * Each bucket is a single timestamp, the time at which it will be full again (generic cell rate algorithm),
+ * updated with compare-and-set so that event loops never block on each other.
+ * Buckets are spread over stripes with a bounded number of buckets each. Full buckets are removed when a stripe
+ * runs out of room, and while it stays full new clients of a route share the stripe's "_other" bucket of the route.
+ */
+public class RateLimiter implements Shareable {
+
+  public static final String OTHER_CLIENTS = "_other";
+
+  private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long SWEEP_INTERVAL_NANOS = SECOND_NANOS;
+
+  private final Stripe[] stripes;
+  private final int maxKeysPerStripe;
+
+  // limit per route, e.g. "GET /feature"
+  private volatile Map<String, Limit> limits = Collections.emptyMap();
+
+  /**
+   * @param stripes number of stripes, rounded up to a power of two
+   * @param maxKeys maximum number of buckets over all stripes
+   */
+  public RateLimiter(int stripes, int maxKeys) {
+
+    int count = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+    this.stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      this.stripes[i] = new Stripe();
+    }
+    this.maxKeysPerStripe = Math.max(1, maxKeys / count);
+  }
+
+  /**
+   * Replace limits of all routes
+   * @param routes limit per route, e.g. { "GET /feature": { "requestsPerSecond": 50, "burst": 100, "key": "apiKey" } }
+   * @throws IllegalArgumentException if a limit is not positive or its key is unknown
+   */
+  public void configure(JsonObject routes) {
+
+    Map<String, Limit> newLimits = new HashMap<>();
+    for (String route : routes.fieldNames()) {
+      newLimits.put(route, Limit.fromJson(routes.getJsonObject(route)));
+    }
+
+    limits = newLimits;
+  }
+
+  /**
+   * @param route method and path, e.g. "GET /feature"
+   * @return limit of route, null if route is not limited
+   */
+  public Limit getLimit(String route) {
+
+    return limits.get(route);
+  }
+
+  /**
+   * Take a token from the bucket of a client
+   * @param route method and path the limit is configured for
+   * @param limit limit of route
+   * @param client api key, address or email of the client
+   * @param now current time from System.nanoTime()
+   * @return whether the request is allowed, with the state of the bucket for rate limit headers
+   */
+  public Decision tryAcquire(String route, Limit limit, String client, long now) {
+
+    AtomicLong bucket = bucket(route, client, now);
+
+    while (true) {
+
+      long fullAt = bucket.get();
+      long newFullAt = Math.max(fullAt, now) + limit.intervalNanos;
+      long wait = newFullAt - now;
+
+      if (wait > limit.capacityNanos) {
+        return new Decision(false, limit.burst, 0, toSeconds(fullAt - now), toSeconds(wait - limit.capacityNanos));
+      }
+
+      if (bucket.compareAndSet(fullAt, newFullAt)) {
+        return new Decision(true, limit.burst, (int) ((limit.capacityNanos - wait) / limit.intervalNanos), toSeconds(wait), 0);
+      }
+    }
+  }
+
+  /**
+   * @return number of buckets over all stripes
+   */
+  public int size() {
+
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.buckets.size();
+    }
+
+    return size;
+  }
+
+  /**
+   * Get bucket of client for route, making room in its stripe if needed
+   */
+  private AtomicLong bucket(String route, String client, long now) {
+
+    String key = route + " " + client;
+    int hash = key.hashCode();
+    Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+
+    AtomicLong bucket = stripe.buckets.get(key);
+    if (bucket != null) {
+      return bucket;
+    }
+
+    if (stripe.buckets.size() >= maxKeysPerStripe) {
+
+      // full buckets are the same as new ones, removing them loses nothing. One thread sweeps at a time
+      long lastSweep = stripe.lastSweep.get();
+      if (now - lastSweep >= SWEEP_INTERVAL_NANOS && stripe.lastSweep.compareAndSet(lastSweep, now)) {
+        stripe.buckets.values().removeIf(fullAt -> fullAt.get() <= now);
+      }
+
+      if (stripe.buckets.size() >= maxKeysPerStripe) {
+        return stripe.buckets.computeIfAbsent(route + " " + OTHER_CLIENTS, k -> new AtomicLong(Long.MIN_VALUE));
+      }
+    }
+
+    return stripe.buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+  }
+
+  private static long toSeconds(long nanos) {
+
+    return nanos <= 0 ? 0 : (nanos + SECOND_NANOS - 1) / SECOND_NANOS;
+  }
+
+  private static class Stripe {
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime() - SWEEP_INTERVAL_NANOS);
+  }
+
+  /**
+   * Rate limit of a route
+   */
+  public static class Limit {
+
+    /**
+     * What identifies a client
+     */
+    public enum Key {
+      // X-API-Key header, address if missing
+      API_KEY,
+      // remote address
+      IP,
+      // email parameter, address if missing
+      EMAIL
+    }
+
+    private final double requestsPerSecond;
+    private final int burst;
+    private final Key key;
+    private final long intervalNanos;
+    private final long capacityNanos;
+
+    /**
+     * @param requestsPerSecond rate at which tokens are added to the bucket
+     * @param burst size of the bucket
+     * @param key what identifies a client
+     */
+    public Limit(double requestsPerSecond, int burst, Key key) {
+
+      if (requestsPerSecond <= 0 || burst <= 0) {
+        throw new IllegalArgumentException("requestsPerSecond and burst need to be positive");
+      }
+
+      this.requestsPerSecond = requestsPerSecond;
+      this.burst = burst;
+      this.key = key;
+      this.intervalNanos = Math.max(1, (long) (SECOND_NANOS / requestsPerSecond));
+      this.capacityNanos = intervalNanos * burst;
+    }
+
+    /**
+     * @param json limit, e.g. { "requestsPerSecond": 50, "burst": 100, "key": "apiKey" }. Burst defaults to
+     *             one second of requests, key to "ip"
+     * @return limit
+     */
+    public static Limit fromJson(JsonObject json) {
+
+      double requestsPerSecond = json.getDouble("requestsPerSecond", 0.0);
+      int burst = json.getInteger("burst", (int) Math.ceil(requestsPerSecond));
+
+      String key = json.getString("key", "ip");
+      switch (key) {
+        case "apiKey":
+          return new Limit(requestsPerSecond, burst, Key.API_KEY);
+        case "ip":
+          return new Limit(requestsPerSecond, burst, Key.IP);
+        case "email":
+          return new Limit(requestsPerSecond, burst, Key.EMAIL);
+        default:
+          throw new IllegalArgumentException("Unknown rate limit key: " + key);
+      }
+    }
+
+    public double getRequestsPerSecond() {
+      return requestsPerSecond;
+    }
+
+    public int getBurst() {
+      return burst;
+    }
+
+    public Key getKey() {
+      return key;
+    }
+  }
+
+  /**
+   * Outcome of taking a token
+   */
+  public static class Decision {
+
+    private final boolean allowed;
+    private final int limit;
+    private final int remaining;
+    private final long resetSeconds;
+    private final long retryAfterSeconds;
+
+    Decision(boolean allowed, int limit, int remaining, long resetSeconds, long retryAfterSeconds) {
+
+      this.allowed = allowed;
+      this.limit = limit;
+      this.remaining = remaining;
+      this.resetSeconds = resetSeconds;
+      this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public boolean isAllowed() {
+      return allowed;
+    }
+
+    /**
+     * @return size of the bucket
+     */
+    public int getLimit() {
+      return limit;
+    }
+
+    /**
+     * @return tokens left in the bucket
+     */
+    public int getRemaining() {
+      return remaining;
+    }
+
+    /**
+     * @return seconds until the bucket is full again
+     */
+    public long getResetSeconds() {
+      return resetSeconds;
+    }
+
+    /**
+     * @return seconds until the next request is allowed, 0 if the request is allowed
+     */
+    public long getRetryAfterSeconds() {
+      return retryAfterSeconds;
+    }
+  }
+}
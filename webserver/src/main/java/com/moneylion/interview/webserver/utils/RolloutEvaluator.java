@@ -0,0 +1,249 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates feature-level rollout rules in memory. A rule document in the rules collection looks like
+ * <pre>
+ * {
+ *   "featureName": "add",
+ *   "percentage": 10,                  (0 - 100, users selected by stable hash of featureName and email)
+ *   "domains": ["moneylion.com"],      (email domains with access)
+ *   "overrides": [ { "email": "xxx@hotmail.com", "enable": false } ]
+ * }
+ * </pre>
+ * Explicit overrides are evaluated separately from domains and percentage, so that the user's own permission
+ * document can be checked in between: overrides take precedence over it, it takes precedence over the rollout.
+ * Evaluation does not allocate. Rules are replaced as a whole when they are reloaded, malformed rule documents are skipped.
+ */
+public class RolloutEvaluator {
+
+  private static final Logger logger = LoggerFactory.getLogger(RolloutEvaluator.class);
+
+  private static final int BUCKETS = 10000;
+  private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+  private static final int FNV_PRIME = 0x01000193;
+
+  private volatile Map<String, Rule> rules = Collections.emptyMap();
+
+  /**
+   * Compile rule documents and replace the current rules. Documents that are not valid rules are logged and skipped
+   * @param documents rule documents from database
+   */
+  public void load(List<JsonObject> documents) {
+
+    Map<String, Rule> compiled = new HashMap<>();
+    for (JsonObject document : documents) {
+      try {
+
+        Object featureName = document.getValue("featureName");
+        if (!(featureName instanceof String)) {
+          throw new IllegalArgumentException("featureName is not a string");
+        }
+        compiled.put((String) featureName, new Rule((String) featureName, document));
+
+      } catch (IllegalArgumentException e) {
+
+        logger.error("Skipped invalid rollout rule " + document.getValue("_id") + ": " + e.getMessage());
+      }
+    }
+
+    rules = compiled;
+  }
+
+  /**
+   * @param featureName feature name
+   * @return true if a rollout rule exists for feature. Otherwise, false
+   */
+  public boolean hasRule(String featureName) {
+
+    return rules.containsKey(featureName);
+  }
+
+  /**
+   * @return number of features with a rollout rule
+   */
+  public int size() {
+
+    return rules.size();
+  }
+
+  /**
+   * Evaluate explicit overrides of feature for user
+   * @param featureName feature name
+   * @param email user's email
+   * @return true or false if the rule has an override for the user. Otherwise, null
+   */
+  public Boolean evaluateOverride(String featureName, String email) {
+
+    Rule rule = rules.get(featureName);
+    return rule == null ? null : rule.override(email);
+  }
+
+  /**
+   * Evaluate email domains and percentage rollout of feature for user
+   * @param featureName feature name
+   * @param email user's email
+   * @return true if the feature is rolled out to the user's domain or to the user's bucket. Otherwise, false
+   */
+  public boolean evaluateRollout(String featureName, String email) {
+
+    Rule rule = rules.get(featureName);
+    return rule != null && rule.rollout(email);
+  }
+
+  /**
+   * Case-insensitive FNV-1a hash of a string
+   */
+  static int hash(int hash, String string) {
+
+    for (int i = 0; i < string.length(); i++) {
+      hash ^= Character.toLowerCase(string.charAt(i));
+      hash *= FNV_PRIME;
+    }
+
+    return hash;
+  }
+
+  /**
+   * Stable bucket (0 - 9999) for user in feature rollout. Users get different buckets for different features.
+   */
+  static int bucket(String featureName, String email) {
+
+    int hash = hash(hash(FNV_OFFSET_BASIS, featureName), email);
+
+    // final avalanche so that similar emails spread over buckets
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+
+    return Integer.remainderUnsigned(hash, BUCKETS);
+  }
+
+  /**
+   * Compiled rollout rule of a feature
+   */
+  private static class Rule {
+
+    private final String featureName;
+    private final int percentageBuckets;
+    private final String[] domains;
+
+    // open addressing table of lowercase override emails
+    private final String[] overrideEmails;
+    private final boolean[] overrideValues;
+    private final int overrideMask;
+    private final boolean hasOverrides;
+
+    /**
+     * @throws IllegalArgumentException if a field of the rule document has the wrong type
+     */
+    Rule(String featureName, JsonObject document) {
+
+      this.featureName = featureName;
+
+      // percentage with up to two decimals
+      Object percentage = document.getValue("percentage");
+      if (percentage != null && !(percentage instanceof Number)) {
+        throw new IllegalArgumentException("percentage is not a number");
+      }
+      double share = percentage == null ? 0.0 : ((Number) percentage).doubleValue();
+      percentageBuckets = (int) Math.round(Math.max(0.0, Math.min(100.0, share)) * BUCKETS / 100);
+
+      JsonArray domainArray = array(document, "domains");
+      domains = new String[domainArray.size()];
+      for (int i = 0; i < domains.length; i++) {
+        if (!(domainArray.getValue(i) instanceof String)) {
+          throw new IllegalArgumentException("domains contains an entry that is not a string");
+        }
+        domains[i] = domainArray.getString(i);
+      }
+
+      // table size is a power of two, at least twice the number of overrides
+      JsonArray overrides = array(document, "overrides");
+      for (Object override : overrides) {
+        Object enable = override instanceof JsonObject ? ((JsonObject) override).getValue("enable") : null;
+        if (!(override instanceof JsonObject) || !(((JsonObject) override).getValue("email") instanceof String)
+          || (enable != null && !(enable instanceof Boolean))) {
+          throw new IllegalArgumentException("overrides contains an entry without string email and boolean enable");
+        }
+      }
+      int size = Integer.highestOneBit(Math.max(1, overrides.size()) * 2 - 1) << 1;
+      overrideEmails = new String[size];
+      overrideValues = new boolean[size];
+      overrideMask = size - 1;
+      hasOverrides = !overrides.isEmpty();
+      for (int i = 0; i < overrides.size(); i++) {
+        JsonObject override = overrides.getJsonObject(i);
+        String email = override.getString("email");
+        int slot = findSlot(email);
+        overrideEmails[slot] = email.toLowerCase();
+        overrideValues[slot] = override.getBoolean("enable", false);
+      }
+    }
+
+    /**
+     * @return array in field of document, empty if the field is missing
+     * @throws IllegalArgumentException if the field is not an array
+     */
+    private static JsonArray array(JsonObject document, String field) {
+
+      Object value = document.getValue(field);
+      if (value != null && !(value instanceof JsonArray)) {
+        throw new IllegalArgumentException(field + " is not an array");
+      }
+
+      return value == null ? new JsonArray() : (JsonArray) value;
+    }
+
+    Boolean override(String email) {
+
+      if (hasOverrides) {
+        int slot = findSlot(email);
+        if (overrideEmails[slot] != null) {
+          return overrideValues[slot];
+        }
+      }
+
+      return null;
+    }
+
+    boolean rollout(String email) {
+
+      // email domain allowlist
+      int at = email.lastIndexOf('@');
+      if (at >= 0) {
+        int domainLength = email.length() - at - 1;
+        for (String domain : domains) {
+          if (domain.length() == domainLength && email.regionMatches(true, at + 1, domain, 0, domainLength)) {
+            return true;
+          }
+        }
+      }
+
+      // percentage rollout
+      return percentageBuckets > 0 && bucket(featureName, email) < percentageBuckets;
+    }
+
+    /**
+     * Find slot holding email, or the empty slot where it would be placed
+     */
+    private int findSlot(String email) {
+
+      int slot = hash(FNV_OFFSET_BASIS, email) & overrideMask;
+      while (overrideEmails[slot] != null && !overrideEmails[slot].equalsIgnoreCase(email)) {
+        slot = (slot + 1) & overrideMask;
+      }
+
+      return slot;
+    }
+  }
+}
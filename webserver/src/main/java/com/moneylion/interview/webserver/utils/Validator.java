@@ -1,84 +1,241 @@
 package com.moneylion.interview.webserver.utils;
 
-import io.vertx.core.Vertx;
-import io.vertx.core.json.JsonObject;
-import io.vertx.json.schema.Schema;
-import io.vertx.json.schema.SchemaParser;
-import io.vertx.json.schema.SchemaRouter;
-import io.vertx.json.schema.SchemaRouterOptions;
-import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.CompletableFuture;
+import java.io.InputStream;
 
+/**
+ * Validation of request parameters and bodies. Each value is checked in a single pass over its characters,
+ * request bodies in a single pass over their tokens.
+ */
 public class Validator {
 
-  private static final Logger logger = LoggerFactory.getLogger(DatabaseUtils.class);
-  private Schema schema;
+  private static final int MAX_DOMAIN_LABEL_LENGTH = 63;
+
+  // characters allowed in the local part of an email besides letters and digits
+  private static final String EMAIL_LOCAL_SYMBOLS = "_!#$%&'*+-/=?^`{|}~";
+  private static final boolean[] EMAIL_LOCAL_CHARS = new boolean[128];
+
+  static {
+    for (char c = 'a'; c <= 'z'; c++) {
+      EMAIL_LOCAL_CHARS[c] = true;
+      EMAIL_LOCAL_CHARS[Character.toUpperCase(c)] = true;
+    }
+    for (char c = '0'; c <= '9'; c++) {
+      EMAIL_LOCAL_CHARS[c] = true;
+    }
+    for (char c : EMAIL_LOCAL_SYMBOLS.toCharArray()) {
+      EMAIL_LOCAL_CHARS[c] = true;
+    }
+  }
 
   /**
-   * Initialize json schema validator
-   * @param schemaPath directory for json schema
+   * Parse and validate body of POST request to /feature: an object with optional featureName (string with at least
+   * one character that is not a digit), optional email (string in email format) and enable (boolean). Other properties
+   * are ignored.
+   * @param factory parser factory for content type of body
+   * @param body request body
+   * @return permission change in body
+   * @throws IllegalArgumentException if body is malformed or a property has the wrong type or format
    */
-  public Validator( String schemaPath,  Vertx vertx) {
+  public static PermissionChange parsePermissionChange(JsonFactory factory, Buffer body) {
 
-    SchemaRouter schemaRouter = SchemaRouter.create(vertx, new SchemaRouterOptions());
-    SchemaParser parser = SchemaParser.createDraft7SchemaParser(schemaRouter);
+    String featureName = null;
+    String email = null;
+    Boolean enable = null;
 
-    try {
+    if (body == null) {
+      throw new IllegalArgumentException("body is missing");
+    }
 
-      JsonObject jsonSchema = new JsonObject(FileReader.fileToString(schemaPath, StandardCharsets.UTF_8));
-      schema = parser.parse(jsonSchema);
+    try (JsonParser parser = factory.createParser((InputStream) new ByteBufInputStream(body.getByteBuf()))) {
 
-    } catch (IOException e) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IllegalArgumentException("body is not an object");
+      }
 
-      logger.error(e.toString());
-    }
-  }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+
+        switch (field) {
+          case "featureName":
+            if (value != JsonToken.VALUE_STRING) {
+              throw new IllegalArgumentException("featureName is not a string");
+            }
+            featureName = parser.getText();
+            if (!validateAlphanumeric(featureName)) {
+              throw new IllegalArgumentException("featureName is not in the correct format");
+            }
+            break;
+          case "email":
+            if (value != JsonToken.VALUE_STRING) {
+              throw new IllegalArgumentException("email is not a string");
+            }
+            email = parser.getText();
+            if (!validateEmail(email)) {
+              throw new IllegalArgumentException("email is not in the correct format");
+            }
+            break;
+          case "enable":
+            if (value != JsonToken.VALUE_TRUE && value != JsonToken.VALUE_FALSE) {
+              throw new IllegalArgumentException("enable is not a boolean");
+            }
+            enable = value == JsonToken.VALUE_TRUE;
+            break;
+          default:
+            // other properties are allowed
+            parser.skipChildren();
+        }
+      }
 
-  /**\
-   * validate json with json schema
-   * @param json json body
-   * @return boolean
-   */
-  public CompletableFuture<Boolean> validate(JsonObject json) {
-    CompletableFuture<Boolean> validateFuture = new CompletableFuture<Boolean>();
-
-    // validate json with schema
-    schema.validateAsync(json).onComplete(ar -> {
-      if(ar.succeeded())
-      {
-        validateFuture.complete(true);
-      } else {
-        validateFuture.completeExceptionally(ar.cause());
+      if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+        throw new IllegalArgumentException("body is not a single object");
+      }
+
+      if (enable == null) {
+        throw new IllegalArgumentException("enable is missing");
       }
-    });
 
-    return validateFuture;
+    } catch (IOException e) {
+
+      throw new IllegalArgumentException("body is malformed: " + e.getMessage(), e);
+    }
+
+    return new PermissionChange(featureName, email, enable);
   }
 
   /**
-   * validate string is in email format
+   * validate string is in email format: dot separated local part, '@',
+   * and a domain of at least two labels or an IPv4 address in brackets
    * @param email email string
    * @return true if is email. Otherwise, false
    */
   public static boolean validateEmail(String email) {
 
-    return email != null && !email.isEmpty() && (email.contains("@") && email.contains(".com"));
+    if (email == null) {
+      return false;
+    }
+
+    int length = email.length();
+    int i = 0;
+
+    // local part: atoms separated by single dots
+    int atomLength = 0;
+    for (; i < length; i++) {
+      char c = email.charAt(i);
+      if (c == '@') {
+        break;
+      } else if (c == '.') {
+        if (atomLength == 0) {
+          return false;
+        }
+        atomLength = 0;
+      } else if (c < 128 && EMAIL_LOCAL_CHARS[c]) {
+        atomLength++;
+      } else {
+        return false;
+      }
+    }
+
+    if (i == length || atomLength == 0) {
+      return false;
+    }
+
+    // skip '@'
+    i++;
+    if (i < length && email.charAt(i) == '[') {
+      return validateAddressLiteral(email, i + 1);
+    }
+
+    // domain: labels of letters, digits and hyphens, starting and ending with letter or digit
+    int labels = 0;
+    int labelLength = 0;
+    char previous = '.';
+    for (; i < length; i++) {
+      char c = email.charAt(i);
+      if (c == '.') {
+        if (labelLength == 0 || previous == '-') {
+          return false;
+        }
+        labels++;
+        labelLength = 0;
+      } else if (isAsciiLetterOrDigit(c) || (c == '-' && labelLength > 0)) {
+        if (++labelLength > MAX_DOMAIN_LABEL_LENGTH) {
+          return false;
+        }
+      } else {
+        return false;
+      }
+      previous = c;
+    }
+
+    return labels > 0 && labelLength > 0 && previous != '-';
   }
 
   /**
-   * validate string has string only or combination of string and number
+   * validate string is not empty and not a number
    * @param string string to validate
-   * @return true if string is string only or combination of string and number. Otherwise, false
+   * @return true if string has at least one character that is not a digit. Otherwise, false
    */
   public static boolean validateAlphanumeric(String string) {
 
-    return string != null && !string.isEmpty() && !StringUtils.isNumeric(string);
+    if (string == null) {
+      return false;
+    }
+
+    for (int i = 0; i < string.length(); i++) {
+      if (!Character.isDigit(string.charAt(i))) {
+        return true;
+      }
+    }
+
+    return false;
   }
 
+  /**
+   * validate IPv4 address literal of an email domain, e.g. 127.0.0.1]
+   * @param email email string
+   * @param start index after '['
+   * @return true if email ends with IPv4 address and ']'. Otherwise, false
+   */
+  private static boolean validateAddressLiteral(String email, int start) {
 
+    int length = email.length();
+    if (length - start < 8 || email.charAt(length - 1) != ']') {
+      return false;
+    }
+
+    int octets = 0;
+    int digits = 0;
+    int value = 0;
+    for (int i = start; i < length - 1; i++) {
+      char c = email.charAt(i);
+      if (c >= '0' && c <= '9') {
+        value = value * 10 + (c - '0');
+        if (++digits > 3 || value > 255) {
+          return false;
+        }
+      } else if (c == '.' && digits > 0 && octets < 3) {
+        octets++;
+        digits = 0;
+        value = 0;
+      } else {
+        return false;
+      }
+    }
+
+    return octets == 3 && digits > 0;
+  }
+
+  private static boolean isAsciiLetterOrDigit(char c) {
+
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+  }
 }
@@ -0,0 +1,274 @@
+package com.moneylion.interview.webserver;
+
+import com.moneylion.interview.webserver.utils.InMemoryDatabaseUtils;
+import com.moneylion.interview.webserver.utils.MediaTypeCodec;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.log4j.PropertyConfigurator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Requests to /feature against the full router, with an in-memory database instead of mongodb
+ */
+@ExtendWith(VertxExtension.class)
+public class TestFeatureRoutes {
+
+  private InMemoryDatabaseUtils dbUtils;
+  private WebClient client;
+
+  @BeforeEach
+  public void deploy_verticle(Vertx vertx, VertxTestContext testContext) {
+    PropertyConfigurator.configure(MainVerticle.configProperties);
+
+    // feature "beta" is rolled out to example.com, except for an override
+    dbUtils = new InMemoryDatabaseUtils(0);
+    dbUtils.insertDocument("rules", new JsonObject()
+      .put("featureName", "beta")
+      .put("domains", new JsonArray().add("example.com"))
+      .put("overrides", new JsonArray().add(new JsonObject().put("email", "pinned@example.com").put("enable", true))));
+    dbUtils.insertDocument("rules", new JsonObject().put("featureName", "broken").put("percentage", "10"));
+
+    client = WebClient.create(vertx, new WebClientOptions().setDefaultHost("localhost").setDefaultPort(3000));
+    vertx.deployVerticle(new ServerInitializerVerticle(dbUtils), testContext.succeeding(id -> testContext.completeNow()));
+  }
+
+  /**
+   * POST request to /feature with cbor body, then GET request to /feature accepting cbor
+   *
+   * @result Permission is added, GET returns canAccess in a cbor body
+   */
+  @Test
+  public void testCborRoundTrip(Vertx vertx, VertxTestContext testContext) throws Exception {
+
+    JsonObject change = new JsonObject()
+      .put("featureName", "add")
+      .put("email", "xxx@hotmail.com")
+      .put("enable", true);
+
+    client.post("/feature")
+      .putHeader(HttpHeaders.CONTENT_TYPE.toString(), MediaTypeCodec.CBOR)
+      .sendBuffer(MediaTypeCodec.encode(MediaTypeCodec.CBOR, change))
+      .compose(post -> {
+        testContext.verify(() -> Assertions.assertEquals(200, post.statusCode()));
+        return client.get("/feature")
+          .addQueryParam("featureName", "add")
+          .addQueryParam("email", "xxx@hotmail.com")
+          .putHeader(HttpHeaders.ACCEPT.toString(), "application/json;q=0.5, application/cbor")
+          .send();
+      })
+      .onComplete(testContext.succeeding(get -> testContext.verify(() -> {
+        Assertions.assertEquals(200, get.statusCode());
+        Assertions.assertEquals(MediaTypeCodec.CBOR, get.getHeader(HttpHeaders.CONTENT_TYPE.toString()));
+        Assertions.assertEquals(HttpHeaders.ACCEPT.toString(), get.getHeader(HttpHeaders.VARY.toString()));
+        Assertions.assertEquals(MediaTypeCodec.encode(MediaTypeCodec.CBOR, new JsonObject().put("canAccess", true)), get.body());
+        testContext.completeNow();
+      })));
+  }
+
+  /**
+   * GET request to /feature accepting neither json nor cbor
+   *
+   * @result Receives a response with 200 status code and a json body
+   */
+  @Test
+  public void testGetDefaultsToJson(Vertx vertx, VertxTestContext testContext) {
+
+    dbUtils.updateDocument("permissions", new JsonObject().put("featureName", "add").put("email", "xxx@hotmail.com"),
+      new JsonObject().put("$set", new JsonObject().put("enable", false)));
+
+    client.get("/feature")
+      .addQueryParam("featureName", "add")
+      .addQueryParam("email", "xxx@hotmail.com")
+      .putHeader(HttpHeaders.ACCEPT.toString(), "text/plain")
+      .send()
+      .onComplete(testContext.succeeding(get -> testContext.verify(() -> {
+        Assertions.assertEquals(200, get.statusCode());
+        Assertions.assertEquals(MediaTypeCodec.JSON, get.getHeader(HttpHeaders.CONTENT_TYPE.toString()));
+        Assertions.assertEquals(HttpHeaders.ACCEPT.toString(), get.getHeader(HttpHeaders.VARY.toString()));
+        Assertions.assertEquals(false, get.bodyAsJsonObject().getBoolean("canAccess"));
+        testContext.completeNow();
+      })));
+  }
+
+  /**
+   * Disable users of a feature that is rolled out to their domain, with POST request to /feature
+   *
+   * @result The user's permission takes precedence over the domain, overrides of the rule take precedence over the user's permission
+   */
+  @Test
+  public void testPermissionOverridesRollout(Vertx vertx, VertxTestContext testContext) {
+
+    getCanAccess("beta", "user@example.com")
+      .compose(before -> {
+        testContext.verify(() -> Assertions.assertTrue(before));
+        return postPermission("beta", "user@example.com", false);
+      })
+      .compose(post -> getCanAccess("beta", "user@example.com"))
+      .compose(after -> {
+        testContext.verify(() -> Assertions.assertFalse(after));
+        return postPermission("beta", "pinned@example.com", false);
+      })
+      .compose(post -> getCanAccess("beta", "pinned@example.com"))
+      .onComplete(testContext.succeeding(pinned -> testContext.verify(() -> {
+        Assertions.assertTrue(pinned);
+        testContext.completeNow();
+      })));
+  }
+
+  /**
+   * GET request to /feature for a feature whose rollout rule is malformed
+   *
+   * @result The server starts without the rule, receives a response with 404 status code
+   */
+  @Test
+  public void testMalformedRuleSkipped(Vertx vertx, VertxTestContext testContext) {
+
+    client.get("/feature")
+      .addQueryParam("featureName", "broken")
+      .addQueryParam("email", "xxx@hotmail.com")
+      .send()
+      .onComplete(testContext.succeeding(get -> testContext.verify(() -> {
+        Assertions.assertEquals(404, get.statusCode());
+        testContext.completeNow();
+      })));
+  }
+
+  /**
+   * POST request to /feature without enable
+   *
+   * @result Receives a response with 400 status code. No audit event is recorded
+   */
+  @Test
+  public void testPostWithoutEnable(Vertx vertx, VertxTestContext testContext) {
+
+    JsonObject change = new JsonObject().put("featureName", "add").put("email", "xxx@hotmail.com");
+
+    client.post("/feature").sendJsonObject(change)
+      .compose(post -> {
+        testContext.verify(() -> Assertions.assertEquals(400, post.statusCode()));
+        return client.get("/audit/stats").send();
+      })
+      .onComplete(testContext.succeeding(stats -> testContext.verify(() -> {
+        Assertions.assertEquals(0, stats.bodyAsJsonObject().getLong("appended"));
+        testContext.completeNow();
+      })));
+  }
+
+  /**
+   * Undeploy and redeploy the server, then POST request to /feature
+   *
+   * @result The audit event is written by the new deployment
+   */
+  @Test
+  public void testAuditAfterRedeploy(Vertx vertx, VertxTestContext testContext) {
+
+    JsonObject config = new JsonObject().put("audit", new JsonObject().put("flushMS", 100));
+
+    vertx.undeploy(vertx.deploymentIDs().iterator().next())
+      .compose(v -> vertx.deployVerticle(new ServerInitializerVerticle(dbUtils), new DeploymentOptions().setConfig(config)))
+      .compose(id -> postPermission("add", "xxx@hotmail.com", true))
+      .onComplete(testContext.succeeding(post -> {
+
+        testContext.verify(() -> Assertions.assertEquals(200, post.statusCode()));
+
+        // retry until the audit log is flushed
+        vertx.setPeriodic(50, timer -> client.get("/audit/stats").send().onSuccess(stats -> {
+          if (stats.bodyAsJsonObject().getLong("written") == 1) {
+            vertx.cancelTimer(timer);
+            testContext.completeNow();
+          }
+        }));
+      }));
+  }
+
+  /**
+   * Undeploy and redeploy the server, then GET request to /feature
+   *
+   * @result The evaluation count is written to the feature_stats collection by the new deployment
+   */
+  @Test
+  public void testStatsAfterRedeploy(Vertx vertx, VertxTestContext testContext) {
+
+    JsonObject config = new JsonObject().put("statsFlushMS", 100);
+
+    vertx.undeploy(vertx.deploymentIDs().iterator().next())
+      .compose(v -> vertx.deployVerticle(new ServerInitializerVerticle(dbUtils), new DeploymentOptions().setConfig(config)))
+      .compose(id -> getCanAccess("beta", "user@example.com"))
+      .onComplete(testContext.succeeding(canAccess -> {
+
+        testContext.verify(() -> Assertions.assertTrue(canAccess));
+
+        // retry until the counters are flushed
+        vertx.setPeriodic(50, timer -> {
+          if (dbUtils.count("feature_stats") == 1) {
+            vertx.cancelTimer(timer);
+            testContext.completeNow();
+          }
+        });
+      }));
+  }
+
+  /**
+   * GET request to /feature, then to /feature/ from the same client, on a server whose bucket barely refills
+   *
+   * @result Both requests take a token from the same rate limit bucket
+   */
+  @Test
+  public void testRateLimitTrailingSlash(Vertx vertx, VertxTestContext testContext) {
+
+    JsonObject config = new JsonObject()
+      .put("http", new JsonObject().put("port", 3001))
+      .put("rateLimit", new JsonObject().put("routes", new JsonObject()
+        .put("GET /feature", new JsonObject().put("requestsPerSecond", 0.001).put("burst", 10).put("key", "apiKey"))));
+    WebClient limited = WebClient.create(vertx, new WebClientOptions().setDefaultHost("localhost").setDefaultPort(3001));
+
+    vertx.deployVerticle(new ServerInitializerVerticle(dbUtils), new DeploymentOptions().setConfig(config))
+      .compose(id -> limited.get("/feature")
+        .addQueryParam("featureName", "add")
+        .addQueryParam("email", "xxx@hotmail.com")
+        .putHeader("X-API-Key", "client")
+        .send())
+      .compose(first -> {
+        testContext.verify(() -> Assertions.assertEquals("9", first.getHeader("X-RateLimit-Remaining")));
+        return limited.get("/feature/")
+          .addQueryParam("featureName", "add")
+          .addQueryParam("email", "xxx@hotmail.com")
+          .putHeader("X-API-Key", "client")
+          .send();
+      })
+      .onComplete(testContext.succeeding(second -> testContext.verify(() -> {
+        Assertions.assertEquals(404, second.statusCode());
+        Assertions.assertEquals("10", second.getHeader("X-RateLimit-Limit"));
+        Assertions.assertEquals("8", second.getHeader("X-RateLimit-Remaining"));
+        testContext.completeNow();
+      })));
+  }
+
+  private Future<HttpResponse<Buffer>> postPermission(String featureName, String email, boolean enable) {
+
+    return client.post("/feature")
+      .sendJsonObject(new JsonObject().put("featureName", featureName).put("email", email).put("enable", enable));
+  }
+
+  private Future<Boolean> getCanAccess(String featureName, String email) {
+
+    return client.get("/feature")
+      .addQueryParam("featureName", featureName)
+      .addQueryParam("email", email)
+      .send()
+      .map(response -> response.bodyAsJsonObject().getBoolean("canAccess"));
+  }
+}
@@ -0,0 +1,279 @@
+package com.moneylion.interview.webserver;
+
+import com.moneylion.interview.webserver.utils.InMemoryDatabaseUtils;
+import com.moneylion.interview.webserver.utils.MediaTypeCodec;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.HdrHistogram.Histogram;
+import org.apache.log4j.PropertyConfigurator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the full router against an in-memory database with injected latency.
+ * Requests are sent at a fixed rate regardless of responses (open loop). Latency is measured from the time a request
+ * was scheduled to be sent, so that requests delayed by a stalled server or client are counted with their full wait.
+ * Run with: mvn test -Pload-test. Rate, duration and thresholds are set with system properties, see {@link LoadSettings}.
+ */
+@Tag("load")
+@ExtendWith(VertxExtension.class)
+public class TestLoad {
+
+  private static final Logger logger = LoggerFactory.getLogger(TestLoad.class);
+  private static final String REPORT = "target/load-test-report.json";
+
+  // warnings and the result of the load test only, debug logs of every request would dominate the latency
+  private static final String LOGGER_PROPERTIES = "src/test/resources/load-test-logger.properties";
+
+  // each simulated user has its own rate limit
+  private static final String API_KEY_HEADER = "X-API-Key";
+
+  private final LoadSettings settings = new LoadSettings();
+  private InMemoryDatabaseUtils dbUtils;
+  private WebClient client;
+
+  @BeforeEach
+  public void deploy_verticle(Vertx vertx, VertxTestContext testContext) {
+    PropertyConfigurator.configure(LOGGER_PROPERTIES);
+
+    // permissions of all users exist, so that every GET request is answered from the database
+    dbUtils = new InMemoryDatabaseUtils(settings.dbLatencyMs);
+    for (int user = 0; user < settings.users; user++) {
+      for (int feature = 0; feature < settings.features; feature++) {
+        dbUtils.updateDocument("permissions", permissionQuery(feature, user),
+          new JsonObject().put("$set", new JsonObject().put("enable", true)));
+      }
+    }
+
+    client = WebClient.create(vertx, new WebClientOptions()
+      .setDefaultHost("localhost")
+      .setDefaultPort(settings.port)
+      .setMaxPoolSize(settings.connections)
+      .setKeepAlive(true));
+
+    vertx.deployVerticle(() -> new ServerInitializerVerticle(dbUtils), new DeploymentOptions().setInstances(settings.instances),
+      testContext.succeeding(id -> testContext.completeNow()));
+  }
+
+  @AfterEach
+  public void close_client() {
+    client.close();
+  }
+
+  /**
+   * Send a mix of GET and POST requests to /feature at a fixed rate, after a warm-up at the same rate
+   *
+   * @result All requests succeed, the target rate is sustained, p50/p99/p999 latency are within thresholds
+   * and audit events of the changes are written
+   */
+  @Test
+  public void testFeatureLatency(Vertx vertx) throws Exception {
+
+    // warm-up results are discarded
+    run(vertx, settings.warmUpSeconds).get(settings.warmUpSeconds + settings.drainSeconds, TimeUnit.SECONDS);
+    LoadResult result = run(vertx, settings.durationSeconds).get(settings.durationSeconds + settings.drainSeconds, TimeUnit.SECONDS);
+
+    JsonObject report = result.toJson(settings);
+    logger.info("Load test result: " + report.encodePrettily());
+    vertx.fileSystem().writeFileBlocking(REPORT, report.toBuffer());
+
+    Assertions.assertEquals(0, result.errors, "failed requests");
+    Assertions.assertTrue(result.throughput() >= settings.rate * settings.minThroughputRatio,
+      "throughput " + result.throughput() + " below target rate " + settings.rate);
+    Assertions.assertTrue(result.latencyMs(50) <= settings.maxP50Ms, "p50 " + result.latencyMs(50) + "ms");
+    Assertions.assertTrue(result.latencyMs(99) <= settings.maxP99Ms, "p99 " + result.latencyMs(99) + "ms");
+    Assertions.assertTrue(result.latencyMs(99.9) <= settings.maxP999Ms, "p999 " + result.latencyMs(99.9) + "ms");
+
+    // audit events of POST requests are written off the request path
+    if (settings.postPercent > 0) {
+      Assertions.assertTrue(dbUtils.count("audit") > 0, "audit events written");
+    }
+  }
+
+  /**
+   * Send requests at the configured rate for a number of seconds
+   *
+   * @param seconds duration of the run
+   * @return completes when all requests are answered
+   */
+  private CompletableFuture<LoadResult> run(Vertx vertx, int seconds) {
+
+    Promise<LoadResult> promise = Promise.promise();
+    long total = (long) settings.rate * seconds;
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+    long start = System.nanoTime();
+    LoadResult result = new LoadResult(total, start);
+
+    // timers fire at most every millisecond, each tick sends all requests that are due by then
+    vertx.setPeriodic(1, timer -> {
+
+      long now = System.nanoTime();
+      while (result.sent < total && start + result.sent * intervalNanos <= now) {
+        send(result.sent, start + result.sent * intervalNanos, result, promise);
+        result.sent++;
+      }
+
+      if (result.sent == total) {
+        vertx.cancelTimer(timer);
+      }
+    });
+
+    return promise.future().toCompletionStage().toCompletableFuture();
+  }
+
+  /**
+   * Send request number i of a run
+   *
+   * @param intendedStart time the request was scheduled to be sent at
+   */
+  private void send(long i, long intendedStart, LoadResult result, Promise<LoadResult> promise) {
+
+    int feature = (int) (i % settings.features);
+    int user = (int) (i / settings.features % settings.users);
+    boolean post = i % 100 < settings.postPercent;
+    long actualStart = System.nanoTime();
+
+    if (post) {
+
+      JsonObject body = permissionQuery(feature, user).put("enable", i % 2 == 0);
+      client.post("/feature")
+        .putHeader(HttpHeaders.CONTENT_TYPE.toString(), MediaTypeCodec.JSON)
+        .putHeader(API_KEY_HEADER, "user" + user)
+        .sendBuffer(body.toBuffer())
+        .onComplete(response -> complete(response.succeeded() ? response.result() : null, 304, intendedStart, actualStart, result, promise));
+
+    } else {
+
+      JsonObject query = permissionQuery(feature, user);
+      client.get("/feature")
+        .putHeader(API_KEY_HEADER, "user" + user)
+        .addQueryParam("featureName", query.getString("featureName"))
+        .addQueryParam("email", query.getString("email"))
+        .send()
+        .onComplete(response -> complete(response.succeeded() ? response.result() : null, 200, intendedStart, actualStart, result, promise));
+    }
+  }
+
+  /**
+   * Record latency of a response, complete the run when the last response arrives
+   *
+   * @param response response, null if the request failed
+   * @param alsoExpected status code accepted besides 200
+   */
+  private void complete(HttpResponse<Buffer> response, int alsoExpected, long intendedStart, long actualStart,
+                        LoadResult result, Promise<LoadResult> promise) {
+
+    long end = System.nanoTime();
+    result.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(end - intendedStart));
+    result.serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(end - actualStart));
+    result.end = end;
+
+    if (response == null || (response.statusCode() != 200 && response.statusCode() != alsoExpected)) {
+      result.errors++;
+    }
+
+    if (++result.completed == result.total) {
+      promise.complete(result);
+    }
+  }
+
+  private static JsonObject permissionQuery(int feature, int user) {
+
+    return new JsonObject()
+      .put("featureName", "feature" + feature)
+      .put("email", "user" + user + "@example.com");
+  }
+
+  /**
+   * Counters and latency histograms of a run. Only accessed from the event loop of the load generator.
+   */
+  private static class LoadResult {
+
+    private final long total;
+    private final long start;
+    private final Histogram latency = new Histogram(3);
+    private final Histogram serviceTime = new Histogram(3);
+    private long sent;
+    private long completed;
+    private long errors;
+    private long end;
+
+    LoadResult(long total, long start) {
+
+      this.total = total;
+      this.start = start;
+    }
+
+    double throughput() {
+
+      return completed / ((end - start) / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    double latencyMs(double percentile) {
+
+      return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    JsonObject toJson(LoadSettings settings) {
+
+      return new JsonObject()
+        .put("targetRate", settings.rate)
+        .put("durationSeconds", settings.durationSeconds)
+        .put("dbLatencyMs", settings.dbLatencyMs)
+        .put("requests", completed)
+        .put("errors", errors)
+        .put("throughput", throughput())
+        .put("latencyMs", percentiles(latency))
+        .put("serviceTimeMs", percentiles(serviceTime));
+    }
+
+    private static JsonObject percentiles(Histogram histogram) {
+
+      return new JsonObject()
+        .put("p50", histogram.getValueAtPercentile(50) / 1000.0)
+        .put("p99", histogram.getValueAtPercentile(99) / 1000.0)
+        .put("p999", histogram.getValueAtPercentile(99.9) / 1000.0)
+        .put("max", histogram.getMaxValue() / 1000.0);
+    }
+  }
+
+  /**
+   * Load and thresholds, overridden with system properties, e.g. -Dload.rate=5000 -Dload.maxP99Ms=20
+   */
+  private static class LoadSettings {
+
+    private final int port = Integer.getInteger("webserver.http.port", 3000);
+    private final int rate = Integer.getInteger("load.rate", 1000);
+    private final int warmUpSeconds = Integer.getInteger("load.warmUpSeconds", 5);
+    private final int durationSeconds = Integer.getInteger("load.durationSeconds", 20);
+    private final int drainSeconds = Integer.getInteger("load.drainSeconds", 30);
+    private final int instances = Integer.getInteger("load.instances", 2);
+    private final int connections = Integer.getInteger("load.connections", 64);
+    private final long dbLatencyMs = Long.getLong("load.dbLatencyMs", 2);
+    private final int users = Integer.getInteger("load.users", 1000);
+    private final int features = Integer.getInteger("load.features", 10);
+    private final int postPercent = Integer.getInteger("load.postPercent", 10);
+    private final double minThroughputRatio = Double.parseDouble(System.getProperty("load.minThroughputRatio", "0.95"));
+    private final double maxP50Ms = Double.parseDouble(System.getProperty("load.maxP50Ms", "10"));
+    private final double maxP99Ms = Double.parseDouble(System.getProperty("load.maxP99Ms", "50"));
+    private final double maxP999Ms = Double.parseDouble(System.getProperty("load.maxP999Ms", "100"));
+  }
+}
@@ -1,8 +1,11 @@
 package com.moneylion.interview.webserver;
 
+import com.moneylion.interview.webserver.utils.MediaTypeCodec;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
 import io.vertx.junit5.VertxExtension;
@@ -224,4 +227,33 @@ public class TestMainVerticle {
       }));
   }
 
+  /**
+   * POST request to /feature with invalid cbor body
+   *
+   * @result Receives a response with 400 status code
+   */
+  @Test
+  public void testPostInvalidCbor(Vertx vertx, VertxTestContext testContext) throws Exception {
+    HttpClient client = vertx.createHttpClient();
+
+    // create cbor body for request
+    JsonObject json = new JsonObject()
+      .put("featureName", "add")
+      .put("email", "xxxx")
+      .put("enable", false);
+    Buffer cborBody = MediaTypeCodec.encode(MediaTypeCodec.CBOR, json);
+
+    // create request and send request to API
+    client.request(HttpMethod.POST, 3000, "localhost", "/feature")
+      .onComplete(req -> req.result()
+        .putHeader(HttpHeaders.CONTENT_TYPE, MediaTypeCodec.CBOR)
+        .send(cborBody).onComplete((result) -> {
+          // verify test result
+          testContext.verify(() -> {
+            Assertions.assertEquals(400, result.result().statusCode());
+          });
+          testContext.completeNow();
+        }));
+  }
+
 }
@@ -0,0 +1,72 @@
+package com.moneylion.interview.webserver;
+
+import com.moneylion.interview.webserver.utils.InMemoryDatabaseUtils;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.log4j.PropertyConfigurator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.CompletableFuture;
+
+@ExtendWith(VertxExtension.class)
+public class TestStartup {
+
+  /**
+   * Send GET request to /feature while the server is starting, and again once it is ready
+   *
+   * @result Receives a response with 503 status code and a Retry-After header during startup, 404 once ready
+   */
+  @Test
+  public void testFeatureUnavailableDuringStartup(Vertx vertx, VertxTestContext testContext) {
+    PropertyConfigurator.configure(MainVerticle.configProperties);
+
+    // startup stops at warming up the connection pool, after the http server is listening
+    CompletableFuture<Void> warmUp = new CompletableFuture<>();
+    InMemoryDatabaseUtils dbUtils = new InMemoryDatabaseUtils(0) {
+      @Override
+      public CompletableFuture<Void> warmUpPool(String collection) {
+        return warmUp;
+      }
+    };
+
+    WebClient client = WebClient.create(vertx, new WebClientOptions().setDefaultHost("localhost").setDefaultPort(3000));
+    Checkpoint starting = testContext.checkpoint();
+    Checkpoint ready = testContext.checkpoint();
+
+    vertx.deployVerticle(new ServerInitializerVerticle(dbUtils), testContext.succeeding(id -> client.get("/feature")
+      .addQueryParam("featureName", "add")
+      .addQueryParam("email", "xxx@hotmail.com")
+      .send()
+      .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+        Assertions.assertEquals(404, response.statusCode());
+        ready.flag();
+      })))));
+
+    // retry until the http server is listening
+    vertx.setPeriodic(20, timer -> client.get("/feature")
+      .addQueryParam("featureName", "add")
+      .addQueryParam("email", "xxx@hotmail.com")
+      .send()
+      .onSuccess(response -> {
+
+        if (warmUp.isDone()) {
+          return;
+        }
+
+        vertx.cancelTimer(timer);
+        testContext.verify(() -> {
+          Assertions.assertEquals(503, response.statusCode());
+          Assertions.assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER.toString()));
+        });
+        starting.flag();
+        warmUp.complete(null);
+      }));
+  }
+}
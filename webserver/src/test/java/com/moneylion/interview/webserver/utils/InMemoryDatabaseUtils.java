@@ -0,0 +1,229 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for the mongodb operations of {@link DatabaseUtils}, for tests that run the full router
+ * without a database. Documents are kept per collection and keyed by the query they were written with.
+ * Every operation completes after a configurable latency to simulate the round trip to the database.
+ */
+public class InMemoryDatabaseUtils extends DatabaseUtils {
+
+  private final long latencyMs;
+  private final Map<String, Map<String, JsonObject>> collections = new ConcurrentHashMap<>();
+  private final AtomicLong ids = new AtomicLong();
+  private Vertx vertx;
+
+  /**
+   * @param latencyMs time until each operation completes, 0 to complete immediately
+   */
+  public InMemoryDatabaseUtils(long latencyMs) {
+
+    this.latencyMs = latencyMs;
+  }
+
+  @Override
+  public CompletableFuture<Void> initializeDatabase(Vertx vertx, JsonObject config, String... collections) {
+
+    this.vertx = vertx;
+    for (String collection : collections) {
+      collection(collection);
+    }
+
+    return complete(null);
+  }
+
+  @Override
+  public void reconfigure(JsonObject newConfig) {
+
+    // no connection settings to apply
+  }
+
+  @Override
+  public CompletableFuture<Void> warmUpPool(String collection) {
+
+    return complete(null);
+  }
+
+  @Override
+  public CompletableFuture<MongoClientUpdateResult> updateDocument(String collection, JsonObject query, JsonObject updateDoc,
+                                                                   OperationOptions operationOptions) {
+
+    return complete(update(collection, query, updateDoc, true));
+  }
+
+  @Override
+  public CompletableFuture<JsonObject> findDocument(String collection, JsonObject query, OperationOptions operationOptions) {
+
+    Map<String, JsonObject> documents = collection(collection);
+    JsonObject document = documents.get(query.encode());
+    if (document == null) {
+      document = documents.values().stream().filter(doc -> matches(doc, query)).findFirst().orElse(null);
+    }
+
+    return complete(document == null ? null : document.copy());
+  }
+
+  @Override
+  public CompletableFuture<List<JsonObject>> findDocuments(String collection, JsonObject query) {
+
+    List<JsonObject> found = new ArrayList<>();
+    for (JsonObject document : collection(collection).values()) {
+      if (matches(document, query)) {
+        found.add(document.copy());
+      }
+    }
+
+    return complete(found);
+  }
+
+  @Override
+  public CompletableFuture<MongoClientBulkWriteResult> bulkWrite(String collection, List<BulkOperation> operations) {
+
+    long inserted = 0;
+    long matched = 0;
+    long modified = 0;
+    List<JsonObject> upserts = new ArrayList<>();
+    for (BulkOperation operation : operations) {
+      switch (operation.getType()) {
+        case INSERT:
+          insert(collection, operation.getDocument());
+          inserted++;
+          break;
+        case UPDATE:
+          MongoClientUpdateResult result = update(collection, operation.getFilter(), operation.getDocument(), operation.isUpsert());
+          matched += result.getDocMatched();
+          modified += result.getDocModified();
+          if (result.getDocUpsertedId() != null) {
+            upserts.add(result.getDocUpsertedId());
+          }
+          break;
+        default:
+          CompletableFuture<MongoClientBulkWriteResult> failed = new CompletableFuture<>();
+          failed.completeExceptionally(new UnsupportedOperationException("Bulk operation not supported: " + operation.getType()));
+          return failed;
+      }
+    }
+
+    return complete(new MongoClientBulkWriteResult(inserted, matched, 0, modified, upserts));
+  }
+
+  @Override
+  public CompletableFuture<Void> insertDocuments(String collection, List<JsonObject> documents) {
+
+    // documents with an existing _id replace it, like a duplicate key counted as inserted
+    documents.forEach(document -> insert(collection, document));
+    return complete(null);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> insertDocument(String collection, JsonObject document) {
+
+    insert(collection, document);
+    return complete(true);
+  }
+
+  /**
+   * @param collection table name
+   * @return number of documents in table
+   */
+  public int count(String collection) {
+
+    return collection(collection).size();
+  }
+
+  private Map<String, JsonObject> collection(String collection) {
+
+    return collections.computeIfAbsent(collection, name -> new ConcurrentHashMap<>());
+  }
+
+  private void insert(String collection, JsonObject document) {
+
+    JsonObject inserted = document.copy();
+    if (!inserted.containsKey("_id")) {
+      inserted.put("_id", Long.toHexString(ids.incrementAndGet()));
+    }
+    collection(collection).put(new JsonObject().put("_id", inserted.getValue("_id")).encode(), inserted);
+  }
+
+  /**
+   * Apply $set and $inc of update to the document written with the same query, insert it if upsert is set
+   */
+  private MongoClientUpdateResult update(String collection, JsonObject query, JsonObject updateDoc, boolean upsert) {
+
+    Map<String, JsonObject> documents = collection(collection);
+    String key = query.encode();
+    long[] matched = new long[1];
+    long[] modified = new long[1];
+    JsonObject[] upsertedId = new JsonObject[1];
+
+    documents.compute(key, (k, existing) -> {
+
+      if (existing == null && !upsert) {
+        return null;
+      }
+
+      JsonObject document;
+      if (existing == null) {
+        document = query.copy().put("_id", Long.toHexString(ids.incrementAndGet()));
+        upsertedId[0] = new JsonObject().put("_id", document.getValue("_id"));
+      } else {
+        document = existing.copy();
+        matched[0] = 1;
+      }
+
+      JsonObject set = updateDoc.getJsonObject("$set", new JsonObject());
+      set.forEach(field -> document.put(field.getKey(), field.getValue()));
+
+      JsonObject increment = updateDoc.getJsonObject("$inc", new JsonObject());
+      increment.forEach(field -> document.put(field.getKey(),
+        document.getLong(field.getKey(), 0L) + ((Number) field.getValue()).longValue()));
+
+      if (existing != null && !document.equals(existing)) {
+        modified[0] = 1;
+      }
+
+      return document;
+    });
+
+    return new MongoClientUpdateResult(matched[0], upsertedId[0], modified[0]);
+  }
+
+  private static boolean matches(JsonObject document, JsonObject query) {
+
+    for (Map.Entry<String, Object> field : query) {
+      Object value = document.getValue(field.getKey());
+      if (value == null ? field.getValue() != null : !value.equals(field.getValue())) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Complete with result after the configured latency, on the context of the caller
+   */
+  private <T> CompletableFuture<T> complete(T result) {
+
+    CompletableFuture<T> future = new CompletableFuture<>();
+    if (latencyMs <= 0 || vertx == null) {
+      future.complete(result);
+    } else {
+      vertx.setTimer(latencyMs, id -> future.complete(result));
+    }
+
+    return future;
+  }
+}
@@ -0,0 +1,82 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class TestAuditLog {
+
+  /**
+   * Reserve slots beyond capacity with each overflow policy
+   *
+   * @result BACKPRESSURE and DROP_NEWEST refuse the new event, DROP_OLDEST replaces the oldest queued event
+   */
+  @Test
+  public void testOverflowPolicies() {
+
+    AuditLog backpressure = fill(AuditLog.OverflowPolicy.BACKPRESSURE);
+    Assertions.assertFalse(backpressure.reserve());
+    Assertions.assertEquals(1, backpressure.toJson().getLong("rejected"));
+    Assertions.assertEquals(0, backpressure.toJson().getLong("dropped"));
+
+    AuditLog dropNewest = fill(AuditLog.OverflowPolicy.DROP_NEWEST);
+    Assertions.assertFalse(dropNewest.reserve());
+    Assertions.assertEquals(1, dropNewest.toJson().getLong("dropped"));
+    Assertions.assertEquals(0, dropNewest.take(10).get(0).getInteger("i"));
+
+    AuditLog dropOldest = fill(AuditLog.OverflowPolicy.DROP_OLDEST);
+    Assertions.assertTrue(dropOldest.reserve());
+    dropOldest.append(new JsonObject().put("i", 2));
+    List<JsonObject> batch = dropOldest.take(10);
+    Assertions.assertEquals(2, batch.size());
+    Assertions.assertEquals(1, batch.get(0).getInteger("i"));
+    Assertions.assertEquals(2, batch.get(1).getInteger("i"));
+  }
+
+  /**
+   * Take batches, release unused slots and restore a failed batch
+   *
+   * @result Released and taken slots can be reserved again, restored events are taken first in their order
+   */
+  @Test
+  public void testBatches() {
+
+    AuditLog auditLog = fill(AuditLog.OverflowPolicy.BACKPRESSURE);
+
+    List<JsonObject> batch = auditLog.take(1);
+    Assertions.assertEquals(1, auditLog.depth());
+    Assertions.assertTrue(auditLog.reserve());
+    auditLog.release();
+
+    auditLog.restore(batch);
+    Assertions.assertEquals(2, auditLog.depth());
+    Assertions.assertFalse(auditLog.reserve());
+
+    batch = auditLog.take(10);
+    Assertions.assertEquals(0, batch.get(0).getInteger("i"));
+    Assertions.assertEquals(1, batch.get(1).getInteger("i"));
+    auditLog.written(batch);
+
+    JsonObject stats = auditLog.toJson();
+    Assertions.assertEquals(0, stats.getInteger("depth"));
+    Assertions.assertEquals(2, stats.getLong("appended"));
+    Assertions.assertEquals(2, stats.getLong("written"));
+    Assertions.assertEquals(1, stats.getLong("failedBatches"));
+  }
+
+  /**
+   * @return audit log with capacity 2, filled with events 0 and 1
+   */
+  private static AuditLog fill(AuditLog.OverflowPolicy policy) {
+
+    AuditLog auditLog = new AuditLog(2, policy);
+    for (int i = 0; i < 2; i++) {
+      Assertions.assertTrue(auditLog.reserve());
+      auditLog.append(new JsonObject().put("i", i));
+    }
+
+    return auditLog;
+  }
+}
@@ -0,0 +1,85 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+@ExtendWith(VertxExtension.class)
+public class TestConfigLoader {
+
+  /**
+   * Retrieve config with a deployment config that sets the http port
+   *
+   * @result Deployment config overrides conf/config.json, other settings of conf/config.json are kept
+   */
+  @Test
+  public void testDeploymentConfigOverridesDefaults(Vertx vertx, VertxTestContext testContext) {
+
+    JsonObject deploymentConfig = new JsonObject().put("http", new JsonObject().put("port", 3005));
+
+    ConfigLoader.create(vertx, deploymentConfig).getConfig(testContext.succeeding(config -> testContext.verify(() -> {
+      Assertions.assertEquals(3005, config.getJsonObject("http").getInteger("port"));
+      Assertions.assertNotNull(config.getJsonObject("mongo"));
+      testContext.completeNow();
+    })));
+  }
+
+  /**
+   * Apply env variables and system properties to config
+   *
+   * @result Prefixed keys override nested values with their json type, system properties win over env variables
+   */
+  @Test
+  public void testApplyOverrides() {
+
+    JsonObject config = new JsonObject()
+      .put("http", new JsonObject().put("port", 3000))
+      .put("mongo", new JsonObject().put("profile", "cloud"))
+      .put("statsFlushMS", 10000);
+
+    Map<String, String> env = new HashMap<>();
+    env.put("WEBSERVER_mongo__profile", "local");
+    env.put("WEBSERVER_http__port", "3001");
+    env.put("PATH", "/usr/bin");
+
+    Properties properties = new Properties();
+    properties.setProperty("webserver.http.port", "3002");
+    properties.setProperty("webserver.http.options.tcpNoDelay", "false");
+    properties.setProperty("java.version", "1.8");
+
+    JsonObject result = ConfigLoader.applyOverrides(config, env, properties);
+
+    Assertions.assertEquals("local", result.getJsonObject("mongo").getString("profile"));
+    Assertions.assertEquals(3002, result.getJsonObject("http").getInteger("port"));
+    Assertions.assertEquals(false, result.getJsonObject("http").getJsonObject("options").getBoolean("tcpNoDelay"));
+    Assertions.assertEquals(10000, result.getInteger("statsFlushMS"));
+    Assertions.assertFalse(result.containsKey("PATH"));
+    Assertions.assertFalse(result.containsKey("java"));
+  }
+
+  /**
+   * Select mongodb config of profile
+   *
+   * @result Config of selected profile is returned, unknown profile is rejected
+   */
+  @Test
+  public void testMongoConfig() {
+
+    JsonObject config = new JsonObject().put("mongo", new JsonObject()
+      .put("profile", "local")
+      .put("profiles", new JsonObject().put("local", new JsonObject().put("host", "127.0.0.1"))));
+
+    Assertions.assertEquals("127.0.0.1", ConfigLoader.mongoConfig(config).getString("host"));
+
+    config.getJsonObject("mongo").put("profile", "cloud");
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ConfigLoader.mongoConfig(config));
+  }
+}
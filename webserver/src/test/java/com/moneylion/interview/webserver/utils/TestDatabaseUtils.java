@@ -0,0 +1,121 @@
+package com.moneylion.interview.webserver.utils;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.WriteConcernError;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestDatabaseUtils {
+
+  private static final JsonObject QUERY = new JsonObject().put("featureName", "add").put("email", "xxx@hotmail.com");
+
+  /**
+   * Read a document with secondary read preference after writing it with causal consistency
+   *
+   * @result Reads of the written document go to primary, reads of other documents go to secondaries
+   */
+  @Test
+  public void testReadYourWrites() {
+
+    DatabaseUtils dbUtils = new DatabaseUtils();
+    dbUtils.applyOperationOptions(operations(90000));
+    OperationOptions read = dbUtils.getOperationOptions("getPermission");
+    OperationOptions write = dbUtils.getOperationOptions("changePermission");
+
+    Assertions.assertFalse(dbUtils.readsFromPrimary("permissions", QUERY, read));
+
+    dbUtils.recordWrite("permissions", QUERY, write);
+    Assertions.assertTrue(dbUtils.readsFromPrimary("permissions", QUERY, read));
+    Assertions.assertTrue(dbUtils.readsFromPrimary("permissions", QUERY, OperationOptions.DEFAULT));
+    Assertions.assertFalse(dbUtils.readsFromPrimary("permissions", QUERY.copy().put("email", "yyy@hotmail.com"), read));
+    Assertions.assertFalse(dbUtils.readsFromPrimary("rules", QUERY, read));
+  }
+
+  /**
+   * Read a document after its causal window or after a write without causal consistency
+   *
+   * @result Reads go to secondaries
+   */
+  @Test
+  public void testReadYourWritesExpired() {
+
+    DatabaseUtils dbUtils = new DatabaseUtils();
+    dbUtils.applyOperationOptions(operations(-1));
+    OperationOptions read = dbUtils.getOperationOptions("getPermission");
+
+    dbUtils.recordWrite("permissions", QUERY, dbUtils.getOperationOptions("changePermission"));
+    Assertions.assertFalse(dbUtils.readsFromPrimary("permissions", QUERY, read));
+
+    dbUtils.applyOperationOptions(operations(90000));
+    dbUtils.recordWrite("permissions", QUERY.copy().put("email", "yyy@hotmail.com"), OperationOptions.DEFAULT);
+    Assertions.assertFalse(dbUtils.readsFromPrimary("permissions", QUERY.copy().put("email", "yyy@hotmail.com"), read));
+  }
+
+  /**
+   * Read a document with an instance other than the one that wrote it, in the same vertx instance
+   *
+   * @result Reads of the written document go to primary
+   */
+  @Test
+  public void testReadYourWritesAcrossInstances() {
+
+    Vertx vertx = Vertx.vertx();
+    try {
+
+      DatabaseUtils writer = new DatabaseUtils();
+      DatabaseUtils reader = new DatabaseUtils();
+      for (DatabaseUtils dbUtils : new DatabaseUtils[] {writer, reader}) {
+        dbUtils.applyOperationOptions(operations(90000));
+        dbUtils.shareRecentWrites(vertx);
+      }
+
+      writer.recordWrite("permissions", QUERY, writer.getOperationOptions("changePermission"));
+      Assertions.assertTrue(reader.readsFromPrimary("permissions", QUERY, reader.getOperationOptions("getPermission")));
+
+    } finally {
+      vertx.close();
+    }
+  }
+
+  /**
+   * Check failed bulk writes for inserts of documents that already exist
+   *
+   * @result Only failures made of duplicate keys are counted as written
+   */
+  @Test
+  public void testDuplicateKeysOnly() {
+
+    BulkWriteError duplicate = new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 0);
+    BulkWriteError invalid = new BulkWriteError(121, "Document failed validation", new BsonDocument(), 1);
+    WriteConcernError timeout = new WriteConcernError(64, "waiting for replication timed out", "WriteConcernFailed", new BsonDocument());
+
+    Assertions.assertTrue(DatabaseUtils.isDuplicateKeysOnly(bulkWriteException(Collections.singletonList(duplicate), null)));
+    Assertions.assertFalse(DatabaseUtils.isDuplicateKeysOnly(bulkWriteException(Arrays.asList(duplicate, invalid), null)));
+    Assertions.assertFalse(DatabaseUtils.isDuplicateKeysOnly(bulkWriteException(Collections.singletonList(duplicate), timeout)));
+    Assertions.assertFalse(DatabaseUtils.isDuplicateKeysOnly(new IllegalStateException("connection closed")));
+  }
+
+  private static MongoBulkWriteException bulkWriteException(List<BulkWriteError> errors, WriteConcernError concernError) {
+
+    return new MongoBulkWriteException(BulkWriteResult.unacknowledged(), errors, concernError, new ServerAddress());
+  }
+
+  private static JsonObject operations(long causalWindowMs) {
+
+    return new JsonObject()
+      .put("causalWindowMS", causalWindowMs)
+      .put("operations", new JsonObject()
+        .put("getPermission", new JsonObject().put("readPreference", "secondaryPreferred").put("maxStalenessSeconds", 90))
+        .put("changePermission", new JsonObject().put("writeConcern", "MAJORITY").put("causalConsistency", true)));
+  }
+}
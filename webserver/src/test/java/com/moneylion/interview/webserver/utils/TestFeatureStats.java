@@ -0,0 +1,104 @@
+package com.moneylion.interview.webserver.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class TestFeatureStats {
+
+  /**
+   * Take deltas after counting, then again without new counts
+   *
+   * @result First deltas hold the counts per feature and outcome, second deltas are empty. Totals are kept
+   */
+  @Test
+  public void testTakeDeltas() {
+
+    FeatureStats stats = new FeatureStats(10);
+    stats.record("add", FeatureStats.Outcome.ENABLED);
+    stats.record("add", FeatureStats.Outcome.ENABLED);
+    stats.record("add", FeatureStats.Outcome.NOT_FOUND);
+
+    List<FeatureStats.Delta> deltas = stats.takeDeltas();
+    Assertions.assertEquals(1, deltas.size());
+    Assertions.assertEquals("add", deltas.get(0).getFeatureName());
+    Assertions.assertEquals(2, deltas.get(0).get(FeatureStats.Outcome.ENABLED));
+    Assertions.assertEquals(0, deltas.get(0).get(FeatureStats.Outcome.DISABLED));
+    Assertions.assertEquals(1, deltas.get(0).get(FeatureStats.Outcome.NOT_FOUND));
+    Assertions.assertEquals(2, deltas.get(0).toIncrement().getJsonObject("$inc").getLong("enabled"));
+
+    Assertions.assertTrue(stats.takeDeltas().isEmpty());
+    Assertions.assertEquals(2, stats.toJson("add").getLong("enabled"));
+  }
+
+  /**
+   * Restore deltas of a failed flush, count more and take deltas again
+   *
+   * @result Restored counts are taken again together with the new counts
+   */
+  @Test
+  public void testRestoreFailedFlush() {
+
+    FeatureStats stats = new FeatureStats(10);
+    stats.record("add", FeatureStats.Outcome.DISABLED);
+
+    List<FeatureStats.Delta> failed = stats.takeDeltas();
+    stats.record("add", FeatureStats.Outcome.DISABLED);
+    stats.record("remove", FeatureStats.Outcome.ENABLED);
+    stats.restore(failed);
+
+    List<FeatureStats.Delta> deltas = stats.takeDeltas();
+    Assertions.assertEquals(2, deltas.size());
+    for (FeatureStats.Delta delta : deltas) {
+      if (delta.getFeatureName().equals("add")) {
+        Assertions.assertEquals(2, delta.get(FeatureStats.Outcome.DISABLED));
+      } else {
+        Assertions.assertEquals(1, delta.get(FeatureStats.Outcome.ENABLED));
+      }
+    }
+    Assertions.assertTrue(stats.takeDeltas().isEmpty());
+  }
+
+  /**
+   * Count more features than are counted separately
+   *
+   * @result Further features are counted together under "_other"
+   */
+  @Test
+  public void testMaxFeatures() {
+
+    FeatureStats stats = new FeatureStats(2);
+    stats.record("add", FeatureStats.Outcome.ENABLED);
+    stats.record("remove", FeatureStats.Outcome.ENABLED);
+    stats.record("edit", FeatureStats.Outcome.ENABLED);
+    stats.record("share", FeatureStats.Outcome.DISABLED);
+    stats.record("add", FeatureStats.Outcome.ENABLED);
+
+    Assertions.assertEquals(2, stats.toJson("add").getLong("enabled"));
+    Assertions.assertNull(stats.toJson("edit"));
+    Assertions.assertEquals(1, stats.toJson(FeatureStats.OTHER_FEATURES).getLong("enabled"));
+    Assertions.assertEquals(1, stats.toJson(FeatureStats.OTHER_FEATURES).getLong("disabled"));
+    Assertions.assertEquals(3, stats.toJson().size());
+  }
+
+  /**
+   * Count features that are not found, then one that is found
+   *
+   * @result Features that were only not found are counted under "_other", the found feature gets its own counters
+   */
+  @Test
+  public void testNotFoundWithoutCounters() {
+
+    FeatureStats stats = new FeatureStats(1);
+    stats.record("unknown1", FeatureStats.Outcome.NOT_FOUND);
+    stats.record("unknown2", FeatureStats.Outcome.NOT_FOUND);
+    stats.record("add", FeatureStats.Outcome.ENABLED);
+    stats.record("add", FeatureStats.Outcome.NOT_FOUND);
+
+    Assertions.assertNull(stats.toJson("unknown1"));
+    Assertions.assertEquals(2, stats.toJson(FeatureStats.OTHER_FEATURES).getLong("notFound"));
+    Assertions.assertEquals(1, stats.toJson("add").getLong("enabled"));
+    Assertions.assertEquals(1, stats.toJson("add").getLong("notFound"));
+  }
+}
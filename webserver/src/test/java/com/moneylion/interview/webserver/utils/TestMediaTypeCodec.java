@@ -0,0 +1,26 @@
+package com.moneylion.interview.webserver.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestMediaTypeCodec {
+
+  /**
+   * Choose the response type from Accept headers
+   *
+   * @result cbor if it is listed and not refused with q=0. Otherwise, json
+   */
+  @Test
+  public void testResponseType() {
+
+    Assertions.assertEquals(MediaTypeCodec.CBOR, MediaTypeCodec.responseType("application/cbor"));
+    Assertions.assertEquals(MediaTypeCodec.CBOR, MediaTypeCodec.responseType("application/json;q=0.5, Application/CBOR"));
+    Assertions.assertEquals(MediaTypeCodec.CBOR, MediaTypeCodec.responseType("application/cbor; q=0.1"));
+
+    Assertions.assertEquals(MediaTypeCodec.JSON, MediaTypeCodec.responseType(null));
+    Assertions.assertEquals(MediaTypeCodec.JSON, MediaTypeCodec.responseType("*/*"));
+    Assertions.assertEquals(MediaTypeCodec.JSON, MediaTypeCodec.responseType("text/plain"));
+    Assertions.assertEquals(MediaTypeCodec.JSON, MediaTypeCodec.responseType("application/cbor;q=0"));
+    Assertions.assertEquals(MediaTypeCodec.JSON, MediaTypeCodec.responseType("application/json, application/cbor; q = 0.000"));
+  }
+}
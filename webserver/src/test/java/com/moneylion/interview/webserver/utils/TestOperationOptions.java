@@ -0,0 +1,59 @@
+package com.moneylion.interview.webserver.utils;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.TaggableReadPreference;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.WriteOption;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestOperationOptions {
+
+  /**
+   * Parse read preference with max staleness, write concern and causal consistency
+   *
+   * @result Options are parsed, write concern is case insensitive
+   */
+  @Test
+  public void testFromJson() {
+
+    OperationOptions read = OperationOptions.fromJson(new JsonObject()
+      .put("readPreference", "secondaryPreferred")
+      .put("maxStalenessSeconds", 90));
+
+    Assertions.assertEquals("secondaryPreferred", read.getReadPreference().getName());
+    Assertions.assertEquals(90L, ((TaggableReadPreference) read.getReadPreference())
+      .getMaxStaleness(TimeUnit.SECONDS));
+    Assertions.assertNull(read.getWriteOption());
+    Assertions.assertFalse(read.isPrimaryRead());
+    Assertions.assertFalse(read.isCausalConsistency());
+
+    OperationOptions write = OperationOptions.fromJson(new JsonObject()
+      .put("writeConcern", "majority")
+      .put("causalConsistency", true));
+
+    Assertions.assertEquals(ReadPreference.primary(), write.getReadPreference());
+    Assertions.assertEquals(WriteOption.MAJORITY, write.getWriteOption());
+    Assertions.assertTrue(write.isPrimaryRead());
+    Assertions.assertTrue(write.isCausalConsistency());
+  }
+
+  /**
+   * Parse missing and invalid operation config
+   *
+   * @result Missing config falls back to defaults, unknown values are rejected
+   */
+  @Test
+  public void testFromJsonDefaultsAndInvalid() {
+
+    Assertions.assertSame(OperationOptions.DEFAULT, OperationOptions.fromJson(null));
+    Assertions.assertTrue(OperationOptions.fromJson(new JsonObject()).isPrimaryRead());
+
+    Assertions.assertThrows(IllegalArgumentException.class,
+      () -> OperationOptions.fromJson(new JsonObject().put("readPreference", "nearby")));
+    Assertions.assertThrows(IllegalArgumentException.class,
+      () -> OperationOptions.fromJson(new JsonObject().put("writeConcern", "all")));
+  }
+}
@@ -0,0 +1,129 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestRateLimiter {
+
+  private static final String ROUTE = "GET /feature";
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * Send a burst of requests from one client, then wait for tokens to be added
+   *
+   * @result Requests up to the burst are allowed, then one request per interval. Other clients and routes are not affected
+   */
+  @Test
+  public void testBurstAndRefill() {
+
+    RateLimiter limiter = new RateLimiter(4, 100);
+    RateLimiter.Limit limit = new RateLimiter.Limit(10, 5, RateLimiter.Limit.Key.IP);
+    long now = System.nanoTime();
+
+    for (int i = 0; i < 5; i++) {
+      RateLimiter.Decision decision = limiter.tryAcquire(ROUTE, limit, "a", now);
+      Assertions.assertTrue(decision.isAllowed());
+      Assertions.assertEquals(5, decision.getLimit());
+      Assertions.assertEquals(4 - i, decision.getRemaining());
+    }
+
+    RateLimiter.Decision denied = limiter.tryAcquire(ROUTE, limit, "a", now);
+    Assertions.assertFalse(denied.isAllowed());
+    Assertions.assertEquals(1, denied.getRetryAfterSeconds());
+    Assertions.assertEquals(1, denied.getResetSeconds());
+
+    Assertions.assertTrue(limiter.tryAcquire(ROUTE, limit, "b", now).isAllowed());
+    Assertions.assertTrue(limiter.tryAcquire("POST /feature", limit, "a", now).isAllowed());
+
+    // one token every 100ms
+    Assertions.assertTrue(limiter.tryAcquire(ROUTE, limit, "a", now + SECOND / 10).isAllowed());
+    Assertions.assertFalse(limiter.tryAcquire(ROUTE, limit, "a", now + SECOND / 10).isAllowed());
+    Assertions.assertEquals(4, limiter.tryAcquire(ROUTE, limit, "a", now + 10 * SECOND).getRemaining());
+  }
+
+  /**
+   * Take tokens of one bucket from many threads at the same time
+   *
+   * @result Exactly the burst is allowed
+   */
+  @Test
+  public void testConcurrentAcquire() throws InterruptedException {
+
+    RateLimiter limiter = new RateLimiter(4, 100);
+    RateLimiter.Limit limit = new RateLimiter.Limit(1, 1000, RateLimiter.Limit.Key.API_KEY);
+    long now = System.nanoTime();
+    AtomicInteger allowed = new AtomicInteger();
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 500; i++) {
+          if (limiter.tryAcquire(ROUTE, limit, "key", now).isAllowed()) {
+            allowed.incrementAndGet();
+          }
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assertions.assertEquals(1000, allowed.get());
+  }
+
+  /**
+   * Send requests from more clients than the limiter has room for
+   *
+   * @result Number of buckets stays bounded. Full buckets are removed to make room for new clients
+   */
+  @Test
+  public void testBoundedBuckets() {
+
+    RateLimiter limiter = new RateLimiter(1, 10);
+    RateLimiter.Limit limit = new RateLimiter.Limit(1, 1, RateLimiter.Limit.Key.IP);
+    long now = System.nanoTime();
+
+    for (int i = 0; i < 100; i++) {
+      limiter.tryAcquire(ROUTE, limit, "client" + i, now);
+    }
+    Assertions.assertEquals(11, limiter.size());
+
+    // clients over the bound share a bucket
+    Assertions.assertFalse(limiter.tryAcquire(ROUTE, limit, "client100", now).isAllowed());
+
+    // all buckets are full again
+    Assertions.assertTrue(limiter.tryAcquire(ROUTE, limit, "client100", now + 2 * SECOND).isAllowed());
+    Assertions.assertEquals(1, limiter.size());
+  }
+
+  /**
+   * Configure limits per route
+   *
+   * @result Routes without limit are not limited, invalid limits are rejected
+   */
+  @Test
+  public void testConfigure() {
+
+    RateLimiter limiter = new RateLimiter(4, 100);
+    limiter.configure(new JsonObject()
+      .put(ROUTE, new JsonObject().put("requestsPerSecond", 50).put("key", "email")));
+
+    RateLimiter.Limit limit = limiter.getLimit(ROUTE);
+    Assertions.assertEquals(50, limit.getBurst());
+    Assertions.assertEquals(RateLimiter.Limit.Key.EMAIL, limit.getKey());
+    Assertions.assertNull(limiter.getLimit("POST /feature"));
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> limiter.configure(new JsonObject()
+      .put(ROUTE, new JsonObject().put("requestsPerSecond", 50).put("key", "cookie"))));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> limiter.configure(new JsonObject()
+      .put(ROUTE, new JsonObject().put("requestsPerSecond", 0))));
+    Assertions.assertNotNull(limiter.getLimit(ROUTE));
+  }
+}
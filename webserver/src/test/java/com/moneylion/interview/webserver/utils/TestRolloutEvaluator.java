@@ -0,0 +1,106 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TestRolloutEvaluator {
+
+  /**
+   * Evaluate feature without rollout rule
+   *
+   * @result Rules don't decide access
+   */
+  @Test
+  public void testNoRule() {
+
+    RolloutEvaluator evaluator = new RolloutEvaluator();
+
+    Assertions.assertNull(evaluator.evaluateOverride("add", "xxx@hotmail.com"));
+    Assertions.assertFalse(evaluator.evaluateRollout("add", "xxx@hotmail.com"));
+    Assertions.assertFalse(evaluator.hasRule("add"));
+  }
+
+  /**
+   * Evaluate feature rolled out to 10% of users
+   *
+   * @result About 10% of users have access, and the same users every time
+   */
+  @Test
+  public void testPercentage() {
+
+    RolloutEvaluator evaluator = evaluator(new JsonObject().put("featureName", "add").put("percentage", 10));
+
+    int enabled = 0;
+    for (int i = 0; i < 100000; i++) {
+      String email = "user" + i + "@hotmail.com";
+      boolean canAccess = evaluator.evaluateRollout("add", email);
+      Assertions.assertEquals(canAccess, evaluator.evaluateRollout("add", email));
+      Assertions.assertNull(evaluator.evaluateOverride("add", email));
+      if (canAccess) {
+        enabled++;
+      }
+    }
+
+    Assertions.assertTrue(enabled > 9500 && enabled < 10500, "enabled users: " + enabled);
+  }
+
+  /**
+   * Evaluate feature with domain allowlist and explicit overrides
+   *
+   * @result Overrides are found for their emails only, domains give access to their users, emails are case insensitive
+   */
+  @Test
+  public void testDomainsAndOverrides() {
+
+    RolloutEvaluator evaluator = evaluator(new JsonObject()
+      .put("featureName", "add")
+      .put("domains", new JsonArray().add("moneylion.com"))
+      .put("overrides", new JsonArray()
+        .add(new JsonObject().put("email", "blocked@moneylion.com").put("enable", false))
+        .add(new JsonObject().put("email", "xxx@hotmail.com").put("enable", true))));
+
+    Assertions.assertNull(evaluator.evaluateOverride("add", "someone@MoneyLion.com"));
+    Assertions.assertTrue(evaluator.evaluateRollout("add", "someone@MoneyLion.com"));
+    Assertions.assertEquals(Boolean.FALSE, evaluator.evaluateOverride("add", "Blocked@moneylion.com"));
+    Assertions.assertEquals(Boolean.TRUE, evaluator.evaluateOverride("add", "xxx@hotmail.com"));
+    Assertions.assertFalse(evaluator.evaluateRollout("add", "xxx@hotmail.com"));
+    Assertions.assertFalse(evaluator.evaluateRollout("add", "someone@notmoneylion.com"));
+    Assertions.assertNull(evaluator.evaluateOverride("add", "yyy@hotmail.com"));
+  }
+
+  /**
+   * Load malformed rules next to a valid one
+   *
+   * @result Malformed rules are skipped, the valid rule is loaded
+   */
+  @Test
+  public void testSkipsInvalidRules() {
+
+    RolloutEvaluator evaluator = new RolloutEvaluator();
+    evaluator.load(Arrays.asList(
+      new JsonObject().put("featureName", "percentage").put("percentage", "10"),
+      new JsonObject().put("featureName", "domains").put("domains", new JsonArray().addNull()),
+      new JsonObject().put("featureName", "overrides").put("overrides", new JsonArray().add(new JsonObject().put("enable", true))),
+      new JsonObject().put("featureName", 1).put("percentage", 100),
+      new JsonObject().put("featureName", "add").put("domains", new JsonArray().add("moneylion.com"))));
+
+    Assertions.assertEquals(1, evaluator.size());
+    Assertions.assertFalse(evaluator.hasRule("percentage"));
+    Assertions.assertFalse(evaluator.hasRule("domains"));
+    Assertions.assertFalse(evaluator.hasRule("overrides"));
+    Assertions.assertTrue(evaluator.evaluateRollout("add", "someone@moneylion.com"));
+  }
+
+  private static RolloutEvaluator evaluator(JsonObject rule) {
+
+    RolloutEvaluator evaluator = new RolloutEvaluator();
+    evaluator.load(Collections.singletonList(rule));
+
+    return evaluator;
+  }
+}
@@ -0,0 +1,104 @@
+package com.moneylion.interview.webserver.utils;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestValidator {
+
+  /**
+   * Validate emails
+   *
+   * @result Valid emails are accepted regardless of top level domain, malformed emails are rejected
+   */
+  @Test
+  public void testValidateEmail() {
+
+    Assertions.assertTrue(Validator.validateEmail("xxx@hotmail.com"));
+    Assertions.assertTrue(Validator.validateEmail("first.last+tag@moneylion.co.uk"));
+    Assertions.assertTrue(Validator.validateEmail("xxx@my-domain.io"));
+    Assertions.assertTrue(Validator.validateEmail("xxx@[127.0.0.1]"));
+
+    Assertions.assertFalse(Validator.validateEmail(null));
+    Assertions.assertFalse(Validator.validateEmail(""));
+    Assertions.assertFalse(Validator.validateEmail("xxx"));
+    Assertions.assertFalse(Validator.validateEmail("xxx@hotmail"));
+    Assertions.assertFalse(Validator.validateEmail(".xxx@hotmail.com"));
+    Assertions.assertFalse(Validator.validateEmail("xx..x@hotmail.com"));
+    Assertions.assertFalse(Validator.validateEmail("xxx@-hotmail.com"));
+    Assertions.assertFalse(Validator.validateEmail("xxx@hotmail-.com"));
+    Assertions.assertFalse(Validator.validateEmail("xxx@hotmail..com"));
+    Assertions.assertFalse(Validator.validateEmail("xxx@hotmail.com."));
+    Assertions.assertFalse(Validator.validateEmail("xxx@[256.0.0.1]"));
+    Assertions.assertFalse(Validator.validateEmail("x x@hotmail.com"));
+  }
+
+  /**
+   * Validate feature names
+   *
+   * @result Strings that are not empty and not a number are accepted
+   */
+  @Test
+  public void testValidateAlphanumeric() {
+
+    Assertions.assertTrue(Validator.validateAlphanumeric("add"));
+    Assertions.assertTrue(Validator.validateAlphanumeric("add2"));
+    Assertions.assertTrue(Validator.validateAlphanumeric("add feature"));
+    Assertions.assertTrue(Validator.validateAlphanumeric("12-3"));
+
+    Assertions.assertFalse(Validator.validateAlphanumeric(null));
+    Assertions.assertFalse(Validator.validateAlphanumeric(""));
+    Assertions.assertFalse(Validator.validateAlphanumeric("123"));
+  }
+
+  /**
+   * Parse json and cbor bodies of POST request to /feature
+   *
+   * @result Both are parsed to the same permission change, unknown properties are ignored
+   */
+  @Test
+  public void testParsePermissionChange() throws Exception {
+
+    JsonObject json = new JsonObject()
+      .put("featureName", "add")
+      .put("email", "xxx@hotmail.com")
+      .put("enable", true)
+      .put("comment", new JsonObject().put("by", "admin"));
+
+    for (String contentType : new String[] {MediaTypeCodec.JSON, MediaTypeCodec.CBOR}) {
+
+      Buffer body = MediaTypeCodec.encode(contentType, json);
+      PermissionChange change = Validator.parsePermissionChange(MediaTypeCodec.factory(contentType), body);
+
+      Assertions.assertEquals("add", change.getFeatureName());
+      Assertions.assertEquals("xxx@hotmail.com", change.getEmail());
+      Assertions.assertEquals(true, change.getEnable());
+    }
+  }
+
+  /**
+   * Parse bodies with missing or malformed properties
+   *
+   * @result IllegalArgumentException is thrown
+   */
+  @Test
+  public void testParseInvalidPermissionChange() {
+
+    String[] bodies = {
+      "{\"featureName\": \"add\", \"email\": \"xxxx\", \"enable\": false}",
+      "{\"featureName\": 1, \"email\": \"xxx@hotmail.com\", \"enable\": false}",
+      "{\"featureName\": \"123\", \"email\": \"xxx@hotmail.com\", \"enable\": false}",
+      "{\"featureName\": \"add\", \"email\": \"xxx@hotmail.com\", \"enable\": \"false\"}",
+      "{\"featureName\": \"add\", \"email\": \"xxx@hotmail.com\"}",
+      "{\"featureName\": \"add\"",
+      "[]",
+      ""
+    };
+
+    for (String body : bodies) {
+      Assertions.assertThrows(IllegalArgumentException.class,
+        () -> Validator.parsePermissionChange(MediaTypeCodec.factory(MediaTypeCodec.JSON), Buffer.buffer(body)), body);
+    }
+  }
+}